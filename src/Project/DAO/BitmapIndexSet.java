@@ -0,0 +1,258 @@
+package Project.DAO;
+
+import Project.model.BaseModel;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+//the bitmap indexes of one DAO storage: every object gets a row, and each key of an index a bitmap of the rows that
+//have it, which also counts them for the statistics of a query planner. Rows are kept only once a bitmap index is
+//declared; a query holds the read lock while it intersects the bitmaps and collects the matching rows, so the writer
+//never changes a bitmap under it. Every index also keeps the key it set for each row, a removal clears that bit even
+//if the key of the object has changed since
+final class BitmapIndexSet<T extends BaseModel> {
+    private final Map<SecondaryIndex<T, ?>, BitmapIndex> indexes = new HashMap<>();
+    private final LongHashIndex<Integer> rowsById = new LongHashIndex<>();
+    private final List<T> rows = new ArrayList<>();
+    private final BitSet freeRows = new BitSet();
+    private final ReentrantReadWriteLock lock = new ReentrantReadWriteLock();
+
+    //returns false if the index was declared before
+    boolean declare(SecondaryIndex<T, ?> index) {
+        lock.writeLock().lock();
+        try {
+            return indexes.putIfAbsent(index, new BitmapIndex()) == null;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    //the first bitmap index built also numbers the rows
+    void build(SecondaryIndex<T, ?> index, Iterable<T> objects) {
+        lock.writeLock().lock();
+        try {
+            if (rowsById.size() == 0) {
+                for (T object : objects) {
+                    addRow(object);
+                }
+            }
+
+            BitmapIndex bitmapIndex = indexes.get(index);
+            bitmapIndex.clear();
+            for (int row = 0; row < rows.size(); row++) {
+                if (rows.get(row) != null) setBit(index, bitmapIndex, rows.get(row), row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void rebuild(Iterable<T> objects) {
+        if (indexes.isEmpty()) return;
+
+        lock.writeLock().lock();
+        try {
+            rowsById.clear();
+            rows.clear();
+            freeRows.clear();
+            for (T object : objects) {
+                addRow(object);
+            }
+
+            for (Map.Entry<SecondaryIndex<T, ?>, BitmapIndex> index : indexes.entrySet()) {
+                index.getValue().clear();
+                for (int row = 0; row < rows.size(); row++) {
+                    setBit(index.getKey(), index.getValue(), rows.get(row), row);
+                }
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void put(T object) {
+        if (indexes.isEmpty()) return;
+
+        lock.writeLock().lock();
+        try {
+            removeRow(object.getId());
+
+            int row = addRow(object);
+            for (Map.Entry<SecondaryIndex<T, ?>, BitmapIndex> index : indexes.entrySet()) {
+                setBit(index.getKey(), index.getValue(), object, row);
+            }
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    void remove(long id) {
+        if (indexes.isEmpty()) return;
+
+        lock.writeLock().lock();
+        try {
+            removeRow(id);
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    boolean isDeclared(SecondaryIndex<T, ?> index) {
+        return index.isBitmap() && indexes.containsKey(index);
+    }
+
+    //the objects that have every key
+    List<T> find(Map<SecondaryIndex<T, ?>, Object> keys) {
+        lock.readLock().lock();
+        try {
+            if (keys.isEmpty()) return liveRows();
+
+            BitSet matches = intersect(keys);
+            List<T> objects = new ArrayList<>(matches.cardinality());
+            for (int row = matches.nextSetBit(0); row >= 0; row = matches.nextSetBit(row + 1)) {
+                objects.add(rows.get(row));
+            }
+            return objects;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    long count(Map<SecondaryIndex<T, ?>, Object> keys) {
+        lock.readLock().lock();
+        try {
+            if (keys.isEmpty()) return rowsById.size();
+            if (keys.size() > 1) return intersect(keys).cardinality();
+
+            Map.Entry<SecondaryIndex<T, ?>, Object> key = keys.entrySet().iterator().next();
+            Bitmap bitmap = getBitmaps(key.getKey()).get(key.getValue());
+            return bitmap == null ? 0 : bitmap.getCount();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //the objects whose key is in the range; the keys of a bitmap index are few, so each one is checked
+    @SuppressWarnings("unchecked")
+    <K extends Comparable<K>> long countRange(SecondaryIndex<T, K> index, IndexRange<K> range) {
+        lock.readLock().lock();
+        try {
+            long count = 0;
+            for (Map.Entry<Object, Bitmap> bitmap : getBitmaps(index).entrySet()) {
+                if (range.contains((K) bitmap.getKey())) count += bitmap.getValue().getCount();
+            }
+            return count;
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    //the intersection starts from the bitmap with the fewest rows
+    private BitSet intersect(Map<SecondaryIndex<T, ?>, Object> keys) {
+        List<Bitmap> bitmaps = new ArrayList<>();
+        for (Map.Entry<SecondaryIndex<T, ?>, Object> key : keys.entrySet()) {
+            Bitmap bitmap = getBitmaps(key.getKey()).get(key.getValue());
+            if (bitmap == null) return new BitSet();
+            bitmaps.add(bitmap);
+        }
+
+        bitmaps.sort(Comparator.comparingInt(Bitmap::getCount));
+        BitSet matches = new BitSet();
+        matches.or(bitmaps.get(0).rows);
+        for (int i = 1; i < bitmaps.size() && !matches.isEmpty(); i++) {
+            matches.and(bitmaps.get(i).rows);
+        }
+        return matches;
+    }
+
+    private Map<Object, Bitmap> getBitmaps(SecondaryIndex<T, ?> index) {
+        BitmapIndex bitmapIndex = indexes.get(index);
+        if (bitmapIndex == null)
+            throw new IllegalArgumentException("find failed: index " + index.getName() +
+                    " is not a declared bitmap index");
+        return bitmapIndex.bitmaps;
+    }
+
+    private List<T> liveRows() {
+        List<T> objects = new ArrayList<>(rowsById.size());
+        for (T object : rows) {
+            if (object != null) objects.add(object);
+        }
+        return objects;
+    }
+
+    private int addRow(T object) {
+        int row = freeRows.isEmpty() ? rows.size() : freeRows.nextSetBit(0);
+        if (row == rows.size()) {
+            rows.add(object);
+        } else {
+            rows.set(row, object);
+            freeRows.clear(row);
+        }
+        rowsById.put(object.getId(), row);
+        return row;
+    }
+
+    private void removeRow(long id) {
+        Integer row = rowsById.remove(id);
+        if (row == null) return;
+
+        for (BitmapIndex bitmapIndex : indexes.values()) {
+            Object key = row < bitmapIndex.rowKeys.size() ? bitmapIndex.rowKeys.set(row, null) : null;
+            Bitmap bitmap = key == null ? null : bitmapIndex.bitmaps.get(key);
+            if (bitmap == null) continue;
+
+            bitmap.remove(row);
+            if (bitmap.getCount() == 0) bitmapIndex.bitmaps.remove(key);
+        }
+        rows.set(row, null);
+        freeRows.set(row);
+    }
+
+    private void setBit(SecondaryIndex<T, ?> index, BitmapIndex bitmapIndex, T object, int row) {
+        Object key = index.keyOf(object);
+        while (bitmapIndex.rowKeys.size() <= row) {
+            bitmapIndex.rowKeys.add(null);
+        }
+        bitmapIndex.rowKeys.set(row, key);
+        if (key != null) bitmapIndex.bitmaps.computeIfAbsent(key, key1 -> new Bitmap()).add(row);
+    }
+
+    //the bitmaps of one index by key, and the key of every row
+    private static final class BitmapIndex {
+        private final Map<Object, Bitmap> bitmaps = new HashMap<>();
+        private final List<Object> rowKeys = new ArrayList<>();
+
+        void clear() {
+            bitmaps.clear();
+            rowKeys.clear();
+        }
+    }
+
+    //the rows of one key and how many they are
+    private static final class Bitmap {
+        private final BitSet rows = new BitSet();
+        private int count;
+
+        int getCount() {
+            return count;
+        }
+
+        void add(int row) {
+            if (rows.get(row)) return;
+            rows.set(row);
+            count++;
+        }
+
+        void remove(int row) {
+            if (!rows.get(row)) return;
+            rows.clear(row);
+            count--;
+        }
+    }
+}
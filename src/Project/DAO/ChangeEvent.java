@@ -0,0 +1,41 @@
+package Project.DAO;
+
+import Project.model.BaseModel;
+
+//one committed change of a DAO; the entity of a delete is null
+public final class ChangeEvent<T extends BaseModel> {
+    private final long sequence;
+    private final ChangeType type;
+    private final long id;
+    private final T entity;
+
+    ChangeEvent(long sequence, ChangeType type, long id, T entity) {
+        this.sequence = sequence;
+        this.type = type;
+        this.id = id;
+        this.entity = entity;
+    }
+
+    public long getSequence() {
+        return sequence;
+    }
+
+    public ChangeType getType() {
+        return type;
+    }
+
+    public long getId() {
+        return id;
+    }
+
+    //a copy, so a subscriber changing it does not change the stored object or the event other subscribers see
+    @SuppressWarnings("unchecked")
+    public T getEntity() {
+        return entity == null ? null : (T) entity.copy();
+    }
+
+    @Override
+    public String toString() {
+        return sequence + ", " + type + ", " + id + (entity == null ? "" : ", " + entity);
+    }
+}
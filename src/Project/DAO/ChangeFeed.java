@@ -0,0 +1,193 @@
+package Project.DAO;
+
+import Project.model.BaseModel;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReentrantLock;
+
+//ordered change events of all DAO instances with the same name, numbered from 1 in commit order of this process.
+//The last HISTORY_SIZE events are kept, so a subscriber can resume after the last sequence it has seen; one that
+//falls further behind, or resumes after a sequence this process never published, gets onError. Writers never wait
+//for subscribers, events and errors are delivered on the common pool
+public final class ChangeFeed<T extends BaseModel> implements Flow.Publisher<ChangeEvent<T>> {
+    private static final int HISTORY_SIZE = 1 << 16;
+    private static final int LOCK_STRIPES = 256;
+    private static final Map<String, ChangeFeed<?>> feeds = new ConcurrentHashMap<>();
+
+    private final ChangeEvent<?>[] history = new ChangeEvent<?>[HISTORY_SIZE];
+    private final ReentrantLock[] idLocks = new ReentrantLock[LOCK_STRIPES];
+    private final Set<ChangeSubscription> subscriptions = ConcurrentHashMap.newKeySet();
+    private final Executor executor = ForkJoinPool.commonPool();
+    private long nextSequence = 1;
+
+    private ChangeFeed() {
+        for (int i = 0; i < LOCK_STRIPES; i++) {
+            idLocks[i] = new ReentrantLock();
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T extends BaseModel> ChangeFeed<T> forName(String name) {
+        return (ChangeFeed<T>) feeds.computeIfAbsent(name, key -> new ChangeFeed<>());
+    }
+
+    //delivers the events committed after the subscription
+    @Override
+    public void subscribe(Flow.Subscriber<? super ChangeEvent<T>> subscriber) {
+        subscribe(subscriber, getLastSequence());
+    }
+
+    //delivers the events after the given sequence, first from the history and then as they are committed; a sequence
+    //seen before a restart is not one of this process, the numbering starts at 1 again
+    public Flow.Publisher<ChangeEvent<T>> resumeAfter(long sequence) {
+        return subscriber -> subscribe(subscriber, sequence);
+    }
+
+    public synchronized long getLastSequence() {
+        return nextSequence - 1;
+    }
+
+    //writes of the same id run one after another, so their events are in the order of their commits
+    int[] lock(Collection<T> puts, Collection<Long> deletedIds) {
+        int[] stripes = new int[puts.size() + deletedIds.size()];
+        int count = 0;
+        for (T object : puts) {
+            stripes[count++] = stripeOf(object.getId());
+        }
+        for (Long id : deletedIds) {
+            stripes[count++] = stripeOf(id);
+        }
+        stripes = Arrays.stream(stripes).sorted().distinct().toArray();
+
+        for (int stripe : stripes) {
+            idLocks[stripe].lock();
+        }
+        return stripes;
+    }
+
+    void unlock(int[] stripes) {
+        for (int i = stripes.length - 1; i >= 0; i--) {
+            idLocks[stripes[i]].unlock();
+        }
+    }
+
+    void publish(Collection<T> puts, Collection<Long> deletedIds, Set<Long> insertedIds) {
+        synchronized (this) {
+            for (T object : puts) {
+                ChangeType type = insertedIds.contains(object.getId()) ? ChangeType.INSERT : ChangeType.UPDATE;
+                append(new ChangeEvent<>(nextSequence, type, object.getId(), object));
+            }
+            for (Long id : deletedIds) {
+                append(new ChangeEvent<T>(nextSequence, ChangeType.DELETE, id, null));
+            }
+        }
+        for (ChangeSubscription subscription : subscriptions) {
+            subscription.drain();
+        }
+    }
+
+    private void append(ChangeEvent<T> event) {
+        history[(int) (nextSequence++ % HISTORY_SIZE)] = event;
+    }
+
+    //null if the event is not committed yet
+    @SuppressWarnings("unchecked")
+    private synchronized ChangeEvent<T> eventAt(long sequence) {
+        if (sequence >= nextSequence) return null;
+        if (sequence < nextSequence - HISTORY_SIZE || sequence < 1)
+            throw new IllegalStateException("eventAt failed: change " + sequence + " is no longer kept");
+        return (ChangeEvent<T>) history[(int) (sequence % HISTORY_SIZE)];
+    }
+
+    private void subscribe(Flow.Subscriber<? super ChangeEvent<T>> subscriber, long lastSequence) {
+        ChangeSubscription subscription = new ChangeSubscription(subscriber, lastSequence + 1);
+        long publishedSequence = getLastSequence();
+        if (lastSequence > publishedSequence)
+            subscription.failure = new IllegalStateException("subscribe failed: change " + lastSequence +
+                    " was not published by this process, the last one is " + publishedSequence);
+
+        subscriptions.add(subscription);
+        subscriber.onSubscribe(subscription);
+        subscription.drain();
+    }
+
+    private int stripeOf(long id) {
+        return Math.floorMod(Long.hashCode(id), LOCK_STRIPES);
+    }
+
+    private final class ChangeSubscription implements Flow.Subscription, Runnable {
+        private final Flow.Subscriber<? super ChangeEvent<T>> subscriber;
+        private final AtomicLong demand = new AtomicLong();
+        private final AtomicInteger pendingDrains = new AtomicInteger();
+        private volatile RuntimeException failure;
+        private volatile boolean cancelled;
+        private long next;
+
+        private ChangeSubscription(Flow.Subscriber<? super ChangeEvent<T>> subscriber, long next) {
+            this.subscriber = subscriber;
+            this.next = next;
+        }
+
+        @Override
+        public void request(long n) {
+            if (n <= 0) {
+                if (failure == null)
+                    failure = new IllegalArgumentException("request failed: non-positive request: " + n);
+                drain();
+                return;
+            }
+            demand.getAndAccumulate(n, (current, added) -> current + added < 0 ? Long.MAX_VALUE : current + added);
+            drain();
+        }
+
+        @Override
+        public void cancel() {
+            cancelled = true;
+            subscriptions.remove(this);
+        }
+
+        private void drain() {
+            if (pendingDrains.getAndIncrement() == 0) executor.execute(this);
+        }
+
+        //only one drain runs at a time; a drain requested meanwhile makes it loop once more. Failures are signalled
+        //here too, so the subscriber never gets onError while an onNext is running
+        @Override
+        public void run() {
+            int pending = 1;
+            do {
+                try {
+                    if (failure != null) throw failure;
+
+                    while (!cancelled && demand.get() > 0) {
+                        ChangeEvent<T> event = eventAt(next);
+                        if (event == null) break;
+
+                        next++;
+                        demand.decrementAndGet();
+                        subscriber.onNext(event);
+                    }
+                } catch (RuntimeException e) {
+                    fail(e);
+                }
+                pending = pendingDrains.addAndGet(-pending);
+            } while (pending != 0);
+        }
+
+        private void fail(Throwable throwable) {
+            if (cancelled) return;
+
+            cancel();
+            subscriber.onError(throwable);
+        }
+    }
+}
@@ -0,0 +1,133 @@
+package Project.DAO;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+//a compressed log is a sequence of blocks: 'Z', checksum, raw and deflated length of the directory, raw and deflated
+//length of the data, the deflated directory, the deflated data. The checksum is the CRC32C of the rest of the block
+//after it; blocks of the first version have none. The directory lists the records of the block as the binary
+//format frames them - 'P', id, payload length or 'D', id - and the data holds the payloads back to back, so a replay
+//inflates only the small directories and reading a record inflates only its own block
+final class CompressedBlocks {
+    static final byte BLOCK = 'Z';
+    static final int BLOCK_SIZE = 64 * 1024;
+    private static final ThreadLocal<Inflater> inflaters = ThreadLocal.withInitial(Inflater::new);
+
+    private CompressedBlocks() {
+    }
+
+    static byte[] inflate(ByteBuffer buffer, int start, int length, int rawLength) throws DataFormatException {
+        Inflater inflater = inflaters.get();
+        inflater.reset();
+        inflater.setInput(buffer.slice(start, length));
+
+        byte[] raw = new byte[rawLength];
+        int position = 0;
+        while (position < rawLength) {
+            int inflated = inflater.inflate(raw, position, rawLength - position);
+            if (inflated == 0 && (inflater.finished() || inflater.needsInput() || inflater.needsDictionary())) break;
+            position += inflated;
+        }
+        if (position < rawLength || !inflater.finished())
+            throw new DataFormatException("inflate failed: block does not match its length");
+        return raw;
+    }
+
+    //the position of a block in the file; the block index of a log holds one per block, in file order
+    static final class Block {
+        final int dataStart;
+        final int dataLength;
+        final int dataRawLength;
+
+        Block(int dataStart, int dataLength, int dataRawLength) {
+            this.dataStart = dataStart;
+            this.dataLength = dataLength;
+            this.dataRawLength = dataRawLength;
+        }
+    }
+
+    //collects records until the data of the block reaches BLOCK_SIZE; finish writes the last, shorter block
+    static final class Writer implements DAOLog.RecordWriter {
+        private final DataOutputStream out;
+        private final boolean checksummed;
+        private final ByteArrayOutputStream directory = new ByteArrayOutputStream();
+        private final DataOutputStream directoryOut = new DataOutputStream(directory);
+        private final ByteArrayOutputStream data = new ByteArrayOutputStream();
+        private final Deflater deflater = new Deflater();
+        private final byte[] chunk = new byte[8192];
+
+        Writer(DataOutputStream out, boolean checksummed) {
+            this.out = out;
+            this.checksummed = checksummed;
+        }
+
+        @Override
+        public void put(long id, byte[] payload, int offset, int length) throws IOException {
+            directoryOut.writeByte(DAOLog.PUT);
+            directoryOut.writeLong(id);
+            directoryOut.writeInt(length);
+            data.write(payload, offset, length);
+            if (data.size() >= BLOCK_SIZE) writeBlock();
+        }
+
+        @Override
+        public void delete(long id) throws IOException {
+            directoryOut.writeByte(DAOLog.DELETE);
+            directoryOut.writeLong(id);
+            if (directory.size() >= BLOCK_SIZE) writeBlock();
+        }
+
+        @Override
+        public void finish() throws IOException {
+            try {
+                if (directory.size() > 0) writeBlock();
+            } finally {
+                deflater.end();
+            }
+        }
+
+        private void writeBlock() throws IOException {
+            byte[] deflatedDirectory = deflate(directory);
+            byte[] deflatedData = deflate(data);
+
+            ByteBuffer lengths = ByteBuffer.allocate(16)
+                    .putInt(directory.size())
+                    .putInt(deflatedDirectory.length)
+                    .putInt(data.size())
+                    .putInt(deflatedData.length);
+
+            out.writeByte(BLOCK);
+            if (checksummed) {
+                CRC32C checksum = new CRC32C();
+                checksum.update(lengths.array());
+                checksum.update(deflatedDirectory);
+                checksum.update(deflatedData);
+                out.writeInt((int) checksum.getValue());
+            }
+            out.write(lengths.array());
+            out.write(deflatedDirectory);
+            out.write(deflatedData);
+
+            directory.reset();
+            data.reset();
+        }
+
+        private byte[] deflate(ByteArrayOutputStream raw) {
+            deflater.reset();
+            deflater.setInput(raw.toByteArray());
+            deflater.finish();
+
+            ByteArrayOutputStream deflated = new ByteArrayOutputStream(raw.size() / 2 + 64);
+            while (!deflater.finished()) {
+                deflated.write(chunk, 0, deflater.deflate(chunk));
+            }
+            return deflated.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,98 @@
+package Project.DAO;
+
+import Project.exception.InternalServerException;
+
+import java.io.File;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+public class DAOCompactor {
+    private static final DAOCompactor instance = new DAOCompactor(1, TimeUnit.MINUTES);
+
+    private volatile double garbageRatioThreshold = 0.5;
+    private volatile long sizeThreshold = 16 * 1024 * 1024;
+    private volatile int minGarbageRecords = 100;
+
+    private final Map<String, Long> checkedSizes = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService executor;
+
+    public DAOCompactor(long period, TimeUnit unit) {
+        executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "dao-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleWithFixedDelay(this::checkAll, period, period, unit);
+    }
+
+    public static DAOCompactor getInstance() {
+        return instance;
+    }
+
+    public void register(String path) {
+        checkedSizes.putIfAbsent(path, -1L);
+    }
+
+    public void setGarbageRatioThreshold(double garbageRatioThreshold) {
+        this.garbageRatioThreshold = garbageRatioThreshold;
+    }
+
+    public void setSizeThreshold(long sizeThreshold) {
+        this.sizeThreshold = sizeThreshold;
+    }
+
+    public void setMinGarbageRecords(int minGarbageRecords) {
+        this.minGarbageRecords = minGarbageRecords;
+    }
+
+    public void shutdown() {
+        executor.shutdown();
+    }
+
+    public boolean compactIfNeeded(String path) throws InternalServerException {
+        DAOLog log = DAOLog.read(path);
+        int garbage = log.getGarbageCount();
+
+        boolean fragmented = log.isFragmented();
+
+        if (garbage == 0 && !fragmented) return false;
+        if (!fragmented && new File(path).length() < sizeThreshold && (garbage < minGarbageRecords ||
+                (double) garbage / log.getRecordCount() < garbageRatioThreshold)) return false;
+
+        compact(path);
+        return true;
+    }
+
+    //writers of the file wait for the swap, readers keep reading the previous generation until it is replaced
+    public void compact(String path) throws InternalServerException {
+        synchronized (DAOLog.lockFor(path)) {
+            DAOIndex<?> index = DAOIndex.forPath(path);
+            boolean indexFresh = !index.isStale();
+
+            //the new generation holds the same live records, so a fresh index stays valid
+            if (indexFresh) index.beginWrite();
+            try {
+                DAOLog.replace(path, DAOLog.read(path));
+            } finally {
+                if (indexFresh) index.endWrite();
+            }
+        }
+    }
+
+    private void checkAll() {
+        for (String path : checkedSizes.keySet()) {
+            long size = new File(path).length();
+            if (size == 0 || checkedSizes.get(path) == size) continue;
+
+            try {
+                compactIfNeeded(path);
+                checkedSizes.put(path, new File(path).length());
+            } catch (InternalServerException e) {
+                System.err.println("compaction failed: " + e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package Project.DAO;
+
+import Project.exception.InternalServerException;
+import Project.model.BaseModel;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+public class DAOFormatConverter {
+
+    //one-shot migration of all project files, to the binary format unless another one is given
+    public static void main(String[] args) throws InternalServerException {
+        RecordFormat format = args.length == 0 ? RecordFormat.BINARY : RecordFormat.valueOf(args[0]);
+
+        convert(new HotelDAO(), format);
+        convert(new UserDAO(), format);
+        convert(new RoomDAO(), format);
+        convert(new OrderDAO(), format);
+    }
+
+    public static <T extends BaseModel> void convert(DAOTools<T> dao, RecordFormat format)
+            throws InternalServerException {
+        for (FileStorageEngine<T> engine : getFileEngines(dao)) {
+            convert(dao, engine.getPath(), format, false);
+        }
+    }
+
+    //rewrites every file of the DAO in its own format, so all records take the current encoding of the model
+    public static <T extends BaseModel> void rewrite(DAOTools<T> dao) throws InternalServerException {
+        for (FileStorageEngine<T> engine : getFileEngines(dao)) {
+            convert(dao, engine.getPath(), null, true);
+        }
+    }
+
+    public static <T extends BaseModel> void exportTo(DAOTools<T> dao, String targetPath, RecordFormat format)
+            throws InternalServerException {
+        DAOLog.write(targetPath, targetPath, format, dao, new ArrayList<>(dao.getObjectsFromDAO()));
+    }
+
+    public static <T extends BaseModel> void importFrom(DAOTools<T> dao, String sourcePath)
+            throws InternalServerException {
+        for (T object : readObjects(dao, DAOLog.read(sourcePath), sourcePath)) {
+            dao.updateObjectInDAO(object);
+        }
+    }
+
+    //a null format keeps the format of the file
+    private static <T extends BaseModel> void convert(DAOTools<T> dao, String path, RecordFormat format,
+                                                      boolean always) throws InternalServerException {
+        synchronized (DAOLog.lockFor(path)) {
+            DAOLog log = DAOLog.read(path);
+            if (format == null) format = log.getFormat();
+            //rewriting a file in its own format adds the checksums its older records lack
+            if (!always && log.getFormat() == format && log.isChecksummed()) return;
+
+            DAOIndex<T> index = DAOIndex.forPath(path);
+            boolean indexFresh = !index.isStale();
+
+            if (indexFresh) index.beginWrite();
+            try {
+                DAOLog.write(path, path, format, dao, readObjects(dao, log, path));
+            } finally {
+                if (indexFresh) index.endWrite();
+            }
+        }
+    }
+
+    private static <T extends BaseModel> List<FileStorageEngine<T>> getFileEngines(DAOTools<T> dao)
+            throws InternalServerException {
+        List<StorageEngine<T>> engines = dao.getEngine() instanceof ShardedStorageEngine
+                ? ((ShardedStorageEngine<T>) dao.getEngine()).getShards()
+                : Collections.singletonList(dao.getEngine());
+
+        List<FileStorageEngine<T>> fileEngines = new ArrayList<>();
+        for (StorageEngine<T> engine : engines) {
+            if (!(engine instanceof FileStorageEngine))
+                throw new InternalServerException("getFileEngines failed: the DAO is not stored in a file");
+            fileEngines.add((FileStorageEngine<T>) engine);
+        }
+        return fileEngines;
+    }
+
+    private static <T extends BaseModel> List<T> readObjects(DAOTools<T> dao, DAOLog log, String path)
+            throws InternalServerException {
+        List<T> objects = log.getLiveObjects(dao);
+        if (objects.contains(null))
+            throw new InternalServerException("readObjects failed: file: " + path + " has unreadable records");
+        return objects;
+    }
+}
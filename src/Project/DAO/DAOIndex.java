@@ -0,0 +1,150 @@
+package Project.DAO;
+
+import Project.model.BaseModel;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.StampedLock;
+import java.util.function.Predicate;
+
+//primary-key index of one DAO file, shared by every DAO instance of that file
+final class DAOIndex<T extends BaseModel> {
+    private static final Map<String, DAOIndex<?>> indexes = new ConcurrentHashMap<>();
+
+    private final File file;
+    private final LongHashIndex<T> objects = new LongHashIndex<>();
+    private final SecondaryIndexSet<T> secondaryIndexes = new SecondaryIndexSet<>();
+    private final StampedLock lock = new StampedLock();
+    private volatile long length = -1;
+    private volatile long lastModified = -1;
+    private volatile boolean writing;
+
+    private DAOIndex(String path) {
+        this.file = new File(path);
+    }
+
+    @SuppressWarnings("unchecked")
+    static <T extends BaseModel> DAOIndex<T> forPath(String path) {
+        return (DAOIndex<T>) indexes.computeIfAbsent(path, DAOIndex::new);
+    }
+
+    //the index is stale until built, and again whenever the file was changed bypassing the index;
+    //an in-process write keeps it in step, so readers do not wait for the writer to restamp it
+    boolean isStale() {
+        if (writing) return false;
+        return length != file.length() || lastModified != file.lastModified();
+    }
+
+    //called under the write lock of the file
+    void beginWrite() {
+        writing = true;
+    }
+
+    void endWrite() {
+        stamp();
+        writing = false;
+    }
+
+    //readers take no lock, they retry under the read lock only if a writer changed the table meanwhile
+    T get(long id) {
+        long stamp = lock.tryOptimisticRead();
+        if (stamp != 0) {
+            try {
+                T object = objects.get(id);
+                if (lock.validate(stamp)) return object;
+            } catch (RuntimeException e) {
+                //the table was resized under the reader, the locked read below is consistent
+            }
+        }
+
+        stamp = lock.readLock();
+        try {
+            return objects.get(id);
+        } finally {
+            lock.unlockRead(stamp);
+        }
+    }
+
+    <K> List<T> findBy(SecondaryIndex<T, K> index, K key) {
+        return secondaryIndexes.find(index, key);
+    }
+
+    List<T> findByAll(Map<SecondaryIndex<T, ?>, Object> keys) {
+        return secondaryIndexes.findAll(keys);
+    }
+
+    <K extends Comparable<K>> List<T> findRange(SecondaryIndex<T, K> index, IndexRange<K> range, Predicate<T> filter,
+                                                int limit) {
+        return secondaryIndexes.findRange(index, range, filter, limit);
+    }
+
+    //read without a lock, as the statistic it is
+    long count() {
+        return objects.size();
+    }
+
+    long countByAll(Map<SecondaryIndex<T, ?>, Object> keys) {
+        return secondaryIndexes.count(keys);
+    }
+
+    <K extends Comparable<K>> long countRange(SecondaryIndex<T, K> index, IndexRange<K> range, long limit) {
+        return secondaryIndexes.countRange(index, range, limit);
+    }
+
+    String findUniqueViolation(Collection<T> puts, Collection<Long> deletedIds,
+                               Map<SecondaryIndex<T, ?>, Map<Object, Long>> claimedKeys) {
+        return secondaryIndexes.findUniqueViolation(puts, deletedIds, claimedKeys);
+    }
+
+    //an index declared after the build is filled from the objects already indexed
+    void declare(SecondaryIndex<T, ?> index) {
+        long stamp = lock.writeLock();
+        try {
+            if (secondaryIndexes.declare(index) && length != -1) secondaryIndexes.build(index, objects.values());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void put(T object) {
+        long stamp = lock.writeLock();
+        try {
+            objects.put(object.getId(), object);
+            secondaryIndexes.put(object);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void remove(long id) {
+        long stamp = lock.writeLock();
+        try {
+            T oldObject = objects.remove(id);
+            if (oldObject != null) secondaryIndexes.remove(oldObject);
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+    }
+
+    void rebuild(Collection<T> liveObjects) {
+        long stamp = lock.writeLock();
+        try {
+            objects.clear();
+            for (T object : liveObjects) {
+                if (object != null) objects.put(object.getId(), object);
+            }
+            secondaryIndexes.rebuild(objects.values());
+        } finally {
+            lock.unlockWrite(stamp);
+        }
+        stamp();
+    }
+
+    void stamp() {
+        length = file.length();
+        lastModified = file.lastModified();
+    }
+}
@@ -0,0 +1,770 @@
+package Project.DAO;
+
+import Project.exception.InternalServerException;
+import Project.model.BaseModel;
+
+import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+import java.util.zip.DataFormatException;
+
+//text files hold one record per line, binary files start with BINARY_HEADER and hold framed records:
+//put - 'P', id (long), payload length (int), checksum (int), payload; tombstone - 'D', id (long), checksum (int)
+//compressed files start with COMPRESSED_HEADER and hold deflated blocks of binary records, see CompressedBlocks
+//checksums are CRC32C: of the id, length and payload of a binary record, of the line of a text record, which ends
+//with a tab and the checksum in hex; files of the first binary version and old text lines have none
+final class DAOLog {
+    private static final String TOMBSTONE = "DELETE, ";
+    private static final byte[] TOMBSTONE_BYTES = TOMBSTONE.getBytes();
+    private static final byte[] LINE_END = "\r\n".getBytes();
+    private static final byte FIRST_VERSION = 1;
+    private static final byte CHECKSUM_VERSION = 2;
+    private static final byte[] BINARY_HEADER = {'D', 'A', 'O', 'B', CHECKSUM_VERSION};
+    private static final byte[] COMPRESSED_HEADER = {'D', 'A', 'O', 'Z', CHECKSUM_VERSION};
+    private static final int FORMAT_POSITION = 3;
+    private static final int VERSION_POSITION = 4;
+    private static final byte CHECKSUM_SEPARATOR = '\t';
+    private static final int TEXT_CHECKSUM_LENGTH = 9;
+    private static final int MIN_FRAGMENTED_BLOCKS = 64;
+    static final byte PUT = 'P';
+    static final byte DELETE = 'D';
+    private static final int PARALLEL_CHUNK_SIZE = 1 << 20;
+    private static final int PARALLEL_MIN_RECORDS = 10_000;
+    private static final Map<String, Object> locks = new ConcurrentHashMap<>();
+
+    private final RecordFormat format;
+    private final ByteBuffer buffer;
+    private final LongHashIndex<Span> liveRecords;
+    private final List<CompressedBlocks.Block> blocks;
+    private final int recordCount;
+    private final int validLength;
+    private final boolean checksummed;
+
+    private DAOLog(RecordFormat format, ByteBuffer buffer, LongHashIndex<Span> liveRecords, int recordCount,
+                   int validLength, boolean checksummed) {
+        this(format, buffer, liveRecords, Collections.emptyList(), recordCount, validLength, checksummed);
+    }
+
+    private DAOLog(RecordFormat format, ByteBuffer buffer, LongHashIndex<Span> liveRecords,
+                   List<CompressedBlocks.Block> blocks, int recordCount, int validLength, boolean checksummed) {
+        this.format = format;
+        this.buffer = buffer;
+        this.liveRecords = liveRecords;
+        this.blocks = blocks;
+        this.recordCount = recordCount;
+        this.validLength = validLength;
+        this.checksummed = checksummed;
+    }
+
+    //decodes only the records that survived the replay, straight from the mapped file
+    //mapping is the expensive part of a load, so large logs are mapped on the fork-join pool
+    <T extends BaseModel> List<T> getLiveObjects(DAOTools<T> dao) throws InternalServerException {
+        try {
+            Stream<T> objects = stream(dao);
+            if (liveRecords.size() >= PARALLEL_MIN_RECORDS) objects = objects.parallel();
+
+            return objects.collect(Collectors.toList());
+        } catch (UncheckedIOException e) {
+            throw new InternalServerException("getLiveObjects failed: broken record: " + e.getMessage());
+        }
+    }
+
+    //each record is decoded only when the stream reaches it, a failed decode surfaces as UncheckedIOException
+    //a compressed log is streamed block by block in file order, so every block is inflated once
+    <T extends BaseModel> Stream<T> stream(DAOTools<T> dao) {
+        if (format != RecordFormat.COMPRESSED) return liveRecords.stream().map(span -> decode(dao, buffer, span));
+
+        return groupByBlock().stream().flatMap(spans -> {
+            ByteBuffer records = inflate(spans.get(0).block);
+            return spans.stream().map(span -> decode(dao, records, span));
+        });
+    }
+
+    RecordFormat getFormat() {
+        return format;
+    }
+
+    int getRecordCount() {
+        return recordCount;
+    }
+
+    int getGarbageCount() {
+        return recordCount - liveRecords.size();
+    }
+
+    int getBlockCount() {
+        return blocks.size();
+    }
+
+    //every group commit appends its own short block, so the blocks of a busy file need to be merged now and then
+    boolean isFragmented() {
+        if (blocks.size() < MIN_FRAGMENTED_BLOCKS) return false;
+
+        long rawLength = 0;
+        for (CompressedBlocks.Block block : blocks) {
+            rawLength += block.dataRawLength;
+        }
+        return blocks.size() > 2 * (rawLength / CompressedBlocks.BLOCK_SIZE + 1);
+    }
+
+    //a write interrupted by a crash leaves an incomplete or corrupt last record, which the replay ignores
+    //together with everything after it
+    boolean hasTornTail() {
+        return validLength < buffer.limit();
+    }
+
+    int getValidLength() {
+        return validLength;
+    }
+
+    int getDroppedLength() {
+        return buffer.limit() - validLength;
+    }
+
+    //false if any record of the file was written without a checksum
+    boolean isChecksummed() {
+        return checksummed;
+    }
+
+    //all writers of one file, in any DAO instance, serialize on this lock
+    static Object lockFor(String path) {
+        return locks.computeIfAbsent(path, key -> new Object());
+    }
+
+    //replays the log: the last put of an id wins, a tombstone removes the id. The file is mapped unless
+    //StorageConfig.isMapFiles is off; a map lives as long as the log and the streams that read it
+    static DAOLog read(String path) throws InternalServerException {
+        ByteBuffer buffer;
+        try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ)) {
+            if (channel.size() > Integer.MAX_VALUE)
+                throw new InternalServerException("read failed: file: " + path + " is too large to read");
+
+            buffer = StorageConfig.isMapFiles()
+                    ? channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size())
+                    : readFully(channel);
+        } catch (IOException e) {
+            throw new InternalServerException("read failed: reading from file: " + path + " failed");
+        }
+
+        try {
+            RecordFormat format = readFormat(buffer, path);
+            if (format == RecordFormat.TEXT) return replayText(buffer);
+            if (format == RecordFormat.BINARY) return replayBinary(buffer, isChecksummed(buffer, format));
+            return replayCompressed(buffer, isChecksummed(buffer, format));
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            throw new InternalServerException("read failed: file: " + path + " has broken record");
+        }
+    }
+
+    //the whole batch goes to the file in one write and is forced to the disk before returning
+    static void append(String path, List<? extends DAOWriteQueue.Mutation<?>> mutations)
+            throws InternalServerException {
+        synchronized (lockFor(path)) {
+            try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.READ,
+                    StandardOpenOption.WRITE)) {
+                ByteArrayOutputStream records = new ByteArrayOutputStream();
+                ByteBuffer header = readHeader(channel);
+                RecordFormat format = readFormat(header, path);
+                RecordWriter writer =
+                        recordWriter(new DataOutputStream(records), format, isChecksummed(header, format));
+
+                for (DAOWriteQueue.Mutation<?> mutation : mutations) {
+                    writeMutation(writer, format, mutation);
+                }
+                writer.finish();
+                appendFully(channel, records.toByteArray());
+                channel.force(false);
+            } catch (IOException e) {
+                throw new InternalServerException("writing to file: " + path + " failed");
+            }
+        }
+    }
+
+    static void truncate(String path, long length) throws InternalServerException {
+        synchronized (lockFor(path)) {
+            try (FileChannel channel = FileChannel.open(Paths.get(path), StandardOpenOption.WRITE)) {
+                channel.truncate(length);
+            } catch (IOException e) {
+                throw new InternalServerException("truncate failed: truncating file: " + path + " failed");
+            }
+        }
+    }
+
+    //rewrites the live records of the log in its own format, copying them without decoding
+    static void replace(String path, DAOLog log) throws InternalServerException {
+        writeGeneration(path, path, log.format, writer -> {
+            if (log.format == RecordFormat.COMPRESSED) {
+                for (List<Span> spans : log.groupByBlock()) {
+                    byte[] records = log.inflate(spans.get(0).block).array();
+                    for (Span span : spans) {
+                        writer.put(span.id, records, span.start, span.length);
+                    }
+                }
+                return;
+            }
+
+            byte[] bytes = new byte[64];
+            for (Span span : log.liveRecords.values()) {
+                if (bytes.length < span.length) bytes = new byte[Math.max(span.length, bytes.length * 2)];
+                log.buffer.get(span.start, bytes, 0, span.length);
+                writer.put(span.id, bytes, 0, span.length);
+            }
+        });
+    }
+
+    static <T extends BaseModel> void write(String path, String targetPath, RecordFormat format, DAOTools<T> dao,
+                                            Collection<T> objects) throws InternalServerException {
+        writeGeneration(path, targetPath, format, writer -> {
+            for (T object : objects) {
+                byte[] payload = encode(dao, object, format);
+                writer.put(object.getId(), payload, 0, payload.length);
+            }
+        });
+    }
+
+    //writes a sibling file and renames it over the target, so readers see either generation
+    private static void writeGeneration(String path, String targetPath, RecordFormat format,
+                                        GenerationWriter writer) throws InternalServerException {
+        Path target = Paths.get(targetPath);
+        Path temp = Paths.get(targetPath + ".tmp");
+
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING)) {
+                DataOutputStream out =
+                        new DataOutputStream(new BufferedOutputStream(Channels.newOutputStream(channel)));
+                if (format == RecordFormat.BINARY) out.write(BINARY_HEADER);
+                if (format == RecordFormat.COMPRESSED) out.write(COMPRESSED_HEADER);
+
+                RecordWriter recordWriter = recordWriter(out, format, true);
+                writer.write(recordWriter);
+                recordWriter.finish();
+                out.flush();
+                channel.force(false);
+            }
+            try {
+                Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE, StandardCopyOption.REPLACE_EXISTING);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new InternalServerException("writeGeneration failed: writing file: " + path + " failed");
+        }
+    }
+
+    //large text files are split into line-aligned ranges that are scanned on the fork-join pool
+    private static DAOLog replayText(ByteBuffer buffer) {
+        int limit = buffer.limit();
+        int chunkCount = Math.min(ForkJoinPool.getCommonPoolParallelism() * 4, limit / PARALLEL_CHUNK_SIZE);
+        if (chunkCount < 2) {
+            TextChunk chunk = scanText(buffer, 0, limit, false);
+            return new DAOLog(RecordFormat.TEXT, buffer, chunk.records, chunk.recordCount, chunk.end,
+                    chunk.uncheckedCount == 0);
+        }
+
+        int[] bounds = new int[chunkCount + 1];
+        for (int i = 1; i < chunkCount; i++) {
+            int bound = Math.max((int) ((long) limit * i / chunkCount), bounds[i - 1]);
+            while (bound < limit && buffer.get(bound - 1) != '\n') bound++;
+            bounds[i] = bound;
+        }
+        bounds[chunkCount] = limit;
+
+        List<TextChunk> chunks = IntStream.range(0, chunkCount)
+                .parallel()
+                .mapToObj(i -> scanText(buffer, bounds[i], bounds[i + 1], true))
+                .collect(Collectors.toList());
+
+        //later chunks override earlier ones, exactly as later lines override earlier lines
+        LongHashIndex<Span> records = new LongHashIndex<>();
+        int recordCount = 0;
+        int uncheckedCount = 0;
+        int validLength = limit;
+        for (int i = 0; i < chunkCount; i++) {
+            TextChunk chunk = chunks.get(i);
+            chunk.records.stream().forEach(span -> {
+                if (span.length < 0) {
+                    records.remove(span.id);
+                } else {
+                    records.put(span.id, span);
+                }
+            });
+            recordCount += chunk.recordCount;
+            uncheckedCount += chunk.uncheckedCount;
+
+            if (chunk.end < bounds[i + 1]) {
+                for (int j = i + 1; j < chunkCount; j++) {
+                    if (chunks.get(j).recordCount > 0)
+                        throw new NumberFormatException("replayText failed: broken record inside the file");
+                }
+                validLength = chunk.end;
+                break;
+            }
+        }
+        return new DAOLog(RecordFormat.TEXT, buffer, records, recordCount, validLength, uncheckedCount == 0);
+    }
+
+    //a chunk scanned in parallel keeps its tombstones, because they may delete records of earlier chunks
+    //the scan stops at a broken line, which is a torn tail only if no good line follows it
+    private static TextChunk scanText(ByteBuffer buffer, int from, int to, boolean keepTombstones) {
+        LongHashIndex<Span> records = new LongHashIndex<>();
+        int recordCount = 0;
+        int uncheckedCount = 0;
+        int start = from;
+        while (start < to) {
+            int end = lineEnd(buffer, start, to);
+            if (end == to) break;
+
+            int length = lineLength(buffer, start, end);
+            if (length > 0) {
+                int recordLength = checkedLength(buffer, start, length);
+                Span span = recordLength < 0 ? null : parseLine(buffer, start, recordLength);
+                if (span == null) {
+                    checkNoGoodLines(buffer, end + 1, to);
+                    break;
+                }
+
+                if (span.length < 0 && !keepTombstones) {
+                    records.remove(span.id);
+                } else {
+                    records.put(span.id, span);
+                }
+                if (recordLength == length) uncheckedCount++;
+                recordCount++;
+            }
+            start = end + 1;
+        }
+        return new TextChunk(records, recordCount, uncheckedCount, start);
+    }
+
+    private static void checkNoGoodLines(ByteBuffer buffer, int from, int to) {
+        for (int start = from, end; (end = lineEnd(buffer, start, to)) < to; start = end + 1) {
+            int length = lineLength(buffer, start, end);
+            int recordLength = length > 0 ? checkedLength(buffer, start, length) : -1;
+
+            if (recordLength >= 0 && parseLine(buffer, start, recordLength) != null)
+                throw new NumberFormatException("scanText failed: broken record inside the file");
+        }
+    }
+
+    private static int lineEnd(ByteBuffer buffer, int start, int to) {
+        int end = start;
+        while (end < to && buffer.get(end) != '\n') end++;
+        return end;
+    }
+
+    private static int lineLength(ByteBuffer buffer, int start, int end) {
+        int length = end - start;
+        if (length > 0 && buffer.get(end - 1) == '\r') length--;
+        return length;
+    }
+
+    //the length of the record without its checksum, -1 if the checksum does not match
+    private static int checkedLength(ByteBuffer buffer, int start, int length) {
+        int separator = start + length - TEXT_CHECKSUM_LENGTH;
+        if (length < TEXT_CHECKSUM_LENGTH || buffer.get(separator) != CHECKSUM_SEPARATOR) return length;
+
+        int expected = 0;
+        for (int i = separator + 1; i < start + length; i++) {
+            int digit = Character.digit(buffer.get(i), 16);
+            if (digit < 0) return -1;
+            expected = expected << 4 | digit;
+        }
+        return checksum(buffer, start, separator - start) == expected ? separator - start : -1;
+    }
+
+    //a tombstone span has the length -1; null if the line is not a record
+    private static Span parseLine(ByteBuffer buffer, int start, int length) {
+        try {
+            if (startsWith(buffer, start, length, TOMBSTONE_BYTES))
+                return new Span(parseId(buffer, start + TOMBSTONE_BYTES.length, start + length), start, -1);
+
+            return new Span(parseId(buffer, start, start + length), start, length);
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    //in a checksummed file the first record that fails its checksum ends the log, as no later frame can be trusted
+    private static DAOLog replayBinary(ByteBuffer buffer, boolean checksummed) {
+        LongHashIndex<Span> records = new LongHashIndex<>();
+        int recordCount = 0;
+        int limit = buffer.limit();
+        int checksumLength = checksummed ? 4 : 0;
+        int position = BINARY_HEADER.length;
+        while (position < limit) {
+            byte type = buffer.get(position);
+
+            if (type == PUT) {
+                int payloadStart = position + 13 + checksumLength;
+                if (payloadStart > limit) break;
+
+                int length = buffer.getInt(position + 9);
+                if (length < 0) {
+                    if (checksummed) break;
+                    throw new NumberFormatException("replayBinary failed: broken record length");
+                }
+                if ((long) payloadStart + length > limit) break;
+                if (checksummed && buffer.getInt(position + 13) !=
+                        checksum(buffer, position + 1, 12, payloadStart, length)) break;
+
+                long id = buffer.getLong(position + 1);
+                records.put(id, new Span(id, payloadStart, length));
+                position = payloadStart + length;
+            } else if (type == DELETE) {
+                if (position + 9 + checksumLength > limit) break;
+                if (checksummed && buffer.getInt(position + 9) != checksum(buffer, position + 1, 8)) break;
+
+                records.remove(buffer.getLong(position + 1));
+                position += 9 + checksumLength;
+            } else {
+                if (checksummed) break;
+                throw new NumberFormatException("replayBinary failed: unknown record type: " + type);
+            }
+            recordCount++;
+        }
+        return new DAOLog(RecordFormat.BINARY, buffer, records, recordCount, position, checksummed);
+    }
+
+    //a block is indexed only if it is complete and matches its checksum, else it is a torn tail
+    private static DAOLog replayCompressed(ByteBuffer buffer, boolean checksummed) {
+        LongHashIndex<Span> records = new LongHashIndex<>();
+        List<CompressedBlocks.Block> blocks = new ArrayList<>();
+        int recordCount = 0;
+        int limit = buffer.limit();
+        int lengths = checksummed ? 5 : 1;
+        int position = COMPRESSED_HEADER.length;
+        while (position < limit) {
+            if (buffer.get(position) != CompressedBlocks.BLOCK) {
+                if (checksummed) break;
+                throw new NumberFormatException("replayCompressed failed: unknown block type: " + buffer.get(position));
+            }
+            if (position + lengths + 16 > limit) break;
+
+            int directoryRawLength = buffer.getInt(position + lengths);
+            int directoryLength = buffer.getInt(position + lengths + 4);
+            int dataRawLength = buffer.getInt(position + lengths + 8);
+            int dataLength = buffer.getInt(position + lengths + 12);
+            if (directoryRawLength < 0 || directoryLength < 0 || dataRawLength < 0 || dataLength < 0) {
+                if (checksummed) break;
+                throw new NumberFormatException("replayCompressed failed: broken block length");
+            }
+
+            int directoryStart = position + lengths + 16;
+            long blockEnd = (long) directoryStart + directoryLength + dataLength;
+            if (blockEnd > limit) break;
+            if (checksummed && buffer.getInt(position + 1) !=
+                    checksum(buffer, position + lengths, (int) blockEnd - position - lengths)) break;
+
+            int dataStart = directoryStart + directoryLength;
+
+            ByteBuffer directory;
+            try {
+                directory = ByteBuffer.wrap(
+                        CompressedBlocks.inflate(buffer, directoryStart, directoryLength, directoryRawLength));
+            } catch (DataFormatException e) {
+                throw new NumberFormatException("replayCompressed failed: broken block directory");
+            }
+
+            int block = blocks.size();
+            int offset = 0;
+            int entry = 0;
+            while (entry < directoryRawLength) {
+                long id = directory.getLong(entry + 1);
+                if (directory.get(entry) == PUT) {
+                    int length = directory.getInt(entry + 9);
+                    if (length < 0 || offset + length > dataRawLength)
+                        throw new NumberFormatException("replayCompressed failed: broken record length");
+
+                    records.put(id, new Span(id, offset, length, block));
+                    offset += length;
+                    entry += 13;
+                } else if (directory.get(entry) == DELETE) {
+                    records.remove(id);
+                    entry += 9;
+                } else {
+                    throw new NumberFormatException("replayCompressed failed: unknown record type");
+                }
+                recordCount++;
+            }
+            blocks.add(new CompressedBlocks.Block(dataStart, dataLength, dataRawLength));
+            position = dataStart + dataLength;
+        }
+        return new DAOLog(RecordFormat.COMPRESSED, buffer, records, blocks, recordCount, position, checksummed);
+    }
+
+    private static RecordFormat readFormat(ByteBuffer buffer, String path) throws InternalServerException {
+        if (buffer.limit() < VERSION_POSITION) return RecordFormat.TEXT;
+        for (int i = 0; i < FORMAT_POSITION; i++) {
+            if (buffer.get(i) != BINARY_HEADER[i]) return RecordFormat.TEXT;
+        }
+
+        byte[] header;
+        if (buffer.get(FORMAT_POSITION) == BINARY_HEADER[FORMAT_POSITION]) header = BINARY_HEADER;
+        else if (buffer.get(FORMAT_POSITION) == COMPRESSED_HEADER[FORMAT_POSITION]) header = COMPRESSED_HEADER;
+        else return RecordFormat.TEXT;
+
+        if (buffer.limit() == VERSION_POSITION || buffer.get(VERSION_POSITION) != FIRST_VERSION &&
+                buffer.get(VERSION_POSITION) != CHECKSUM_VERSION)
+            throw new InternalServerException("readFormat failed: file: " + path + " has unsupported version");
+        return header == BINARY_HEADER ? RecordFormat.BINARY : RecordFormat.COMPRESSED;
+    }
+
+    //text records are always written with a checksum, binary records from the second version on
+    private static boolean isChecksummed(ByteBuffer header, RecordFormat format) {
+        return format == RecordFormat.TEXT || header.get(VERSION_POSITION) == CHECKSUM_VERSION;
+    }
+
+    private static ByteBuffer readHeader(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(BINARY_HEADER.length);
+        while (header.hasRemaining()) {
+            if (channel.read(header, header.position()) <= 0) break;
+        }
+        header.flip();
+        return header;
+    }
+
+    //live records of a compressed log grouped by their block, the blocks and the records in file order
+    private List<List<Span>> groupByBlock() {
+        List<List<Span>> groups = new ArrayList<>(Collections.nCopies(blocks.size(), null));
+        for (Span span : liveRecords.values()) {
+            if (groups.get(span.block) == null) groups.set(span.block, new ArrayList<>());
+            groups.get(span.block).add(span);
+        }
+        groups.removeIf(Objects::isNull);
+        for (List<Span> spans : groups) {
+            spans.sort(Comparator.comparingInt(span -> span.start));
+        }
+        return groups;
+    }
+
+    private ByteBuffer inflate(int block) {
+        CompressedBlocks.Block location = blocks.get(block);
+        try {
+            return ByteBuffer.wrap(CompressedBlocks.inflate(buffer, location.dataStart, location.dataLength,
+                    location.dataRawLength));
+        } catch (DataFormatException e) {
+            throw new UncheckedIOException(new IOException("inflate failed: broken block: " + block));
+        }
+    }
+
+    private <T extends BaseModel> T decode(DAOTools<T> dao, ByteBuffer records, Span span) {
+        byte[] bytes = new byte[span.length];
+        records.get(span.start, bytes);
+
+        try {
+            if (format == RecordFormat.TEXT) return dao.map(new String(bytes, Charset.defaultCharset()));
+            return dao.map(span.id, new DataInputStream(new ByteArrayInputStream(bytes)));
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static <T extends BaseModel> void writeMutation(RecordWriter writer, RecordFormat format,
+                                                            DAOWriteQueue.Mutation<T> mutation) throws IOException {
+        for (T object : mutation.puts) {
+            byte[] payload = encode(mutation.dao, object, format);
+            writer.put(object.getId(), payload, 0, payload.length);
+        }
+        for (Long id : mutation.deletedIds) {
+            writer.delete(id);
+        }
+    }
+
+    private static RecordWriter recordWriter(DataOutputStream out, RecordFormat format, boolean checksummed) {
+        if (format == RecordFormat.COMPRESSED) return new CompressedBlocks.Writer(out, checksummed);
+
+        return new RecordWriter() {
+            @Override
+            public void put(long id, byte[] payload, int offset, int length) throws IOException {
+                writePut(out, format, checksummed, id, payload, offset, length);
+            }
+
+            @Override
+            public void delete(long id) throws IOException {
+                writeDelete(out, format, checksummed, id);
+            }
+        };
+    }
+
+    private static <T extends BaseModel> byte[] encode(DAOTools<T> dao, T object, RecordFormat format)
+            throws IOException {
+        if (format == RecordFormat.TEXT) return object.toString().getBytes(Charset.defaultCharset());
+
+        ByteArrayOutputStream payload = new ByteArrayOutputStream();
+        dao.write(object, new DataOutputStream(payload));
+        return payload.toByteArray();
+    }
+
+    private static void writePut(DataOutputStream out, RecordFormat format, boolean checksummed, long id,
+                                 byte[] payload, int offset, int length) throws IOException {
+        if (format == RecordFormat.TEXT) {
+            writeLine(out, payload, offset, length);
+            return;
+        }
+
+        out.writeByte(PUT);
+        out.writeLong(id);
+        out.writeInt(length);
+        if (checksummed) {
+            CRC32C checksum = new CRC32C();
+            checksum.update(ByteBuffer.allocate(12).putLong(id).putInt(length).flip());
+            checksum.update(payload, offset, length);
+            out.writeInt((int) checksum.getValue());
+        }
+        out.write(payload, offset, length);
+    }
+
+    private static void writeDelete(DataOutputStream out, RecordFormat format, boolean checksummed, long id)
+            throws IOException {
+        if (format == RecordFormat.TEXT) {
+            byte[] line = (TOMBSTONE + id).getBytes();
+            writeLine(out, line, 0, line.length);
+            return;
+        }
+
+        out.writeByte(DELETE);
+        out.writeLong(id);
+        if (checksummed) {
+            CRC32C checksum = new CRC32C();
+            checksum.update(ByteBuffer.allocate(8).putLong(id).flip());
+            out.writeInt((int) checksum.getValue());
+        }
+    }
+
+    private static void writeLine(DataOutputStream out, byte[] line, int offset, int length) throws IOException {
+        CRC32C checksum = new CRC32C();
+        checksum.update(line, offset, length);
+
+        out.write(line, offset, length);
+        out.writeByte(CHECKSUM_SEPARATOR);
+        out.write(String.format("%08x", (int) checksum.getValue()).getBytes());
+        out.write(LINE_END);
+    }
+
+    private static int checksum(ByteBuffer buffer, int start, int length) {
+        return checksum(buffer, start, length, start + length, 0);
+    }
+
+    private static int checksum(ByteBuffer buffer, int start, int length, int secondStart, int secondLength) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(buffer.slice(start, length));
+        checksum.update(buffer.slice(secondStart, secondLength));
+        return (int) checksum.getValue();
+    }
+
+    private static ByteBuffer readFully(FileChannel channel) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer, buffer.position()) < 0) break;
+        }
+        return buffer.flip();
+    }
+
+    //a record is appended whole or not at all: a failed write is cut off again
+    private static void appendFully(FileChannel channel, byte[] bytes) throws IOException {
+        long size = channel.size();
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        try {
+            long position = size;
+            while (buffer.hasRemaining()) {
+                position += channel.write(buffer, position);
+            }
+        } catch (IOException e) {
+            channel.truncate(size);
+            throw e;
+        }
+    }
+
+    private static boolean startsWith(ByteBuffer buffer, int start, int length, byte[] prefix) {
+        if (length < prefix.length) return false;
+        for (int i = 0; i < prefix.length; i++) {
+            if (buffer.get(start + i) != prefix[i]) return false;
+        }
+        return true;
+    }
+
+    //the id is the leading number of a text record, so it is parsed from the bytes without decoding the line
+    private static long parseId(ByteBuffer buffer, int start, int end) {
+        long id = 0;
+        int i = start;
+        while (i < end && buffer.get(i) != ',') {
+            int digit = buffer.get(i) - '0';
+            if (digit < 0 || digit > 9 || id > (Long.MAX_VALUE - digit) / 10)
+                throw new NumberFormatException("parseId failed: broken id");
+
+            id = id * 10 + digit;
+            i++;
+        }
+        if (i == start) throw new NumberFormatException("parseId failed: missing id");
+        return id;
+    }
+
+    //the records of one write in the format of the file; finish is called once after the last record
+    interface RecordWriter {
+        void put(long id, byte[] payload, int offset, int length) throws IOException;
+
+        void delete(long id) throws IOException;
+
+        default void finish() throws IOException {
+        }
+    }
+
+    private interface GenerationWriter {
+        void write(RecordWriter writer) throws IOException;
+    }
+
+    //in a compressed log start is the offset of the payload in the inflated data of its block
+    private static final class Span {
+        private final long id;
+        private final int start;
+        private final int length;
+        private final int block;
+
+        private Span(long id, int start, int length) {
+            this(id, start, length, -1);
+        }
+
+        private Span(long id, int start, int length, int block) {
+            this.id = id;
+            this.start = start;
+            this.length = length;
+            this.block = block;
+        }
+    }
+
+    private static final class TextChunk {
+        private final LongHashIndex<Span> records;
+        private final int recordCount;
+        private final int uncheckedCount;
+        private final int end;
+
+        private TextChunk(LongHashIndex<Span> records, int recordCount, int uncheckedCount, int end) {
+            this.records = records;
+            this.recordCount = recordCount;
+            this.uncheckedCount = uncheckedCount;
+            this.end = end;
+        }
+    }
+}
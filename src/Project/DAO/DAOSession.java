@@ -0,0 +1,92 @@
+package Project.DAO;
+
+import Project.exception.BadRequestException;
+import Project.exception.InternalServerException;
+import Project.model.BaseModel;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+//unit of work of one service request: find loads an object at most once per session and returns the same instance
+//after that, while insert, update and delete are only recorded until commit writes each DAO's changes in one write.
+//The found objects are the session's own copies, so a change that is not committed never reaches the stored objects.
+//A session belongs to one thread; the writes of different DAOs are not atomic together
+public final class DAOSession implements AutoCloseable {
+    private final Map<Class<?>, Work<?>> works = new LinkedHashMap<>();
+
+    public <T extends BaseModel> T find(DAOTools<T> dao, long id) throws InternalServerException, BadRequestException {
+        Work<T> work = workOf(dao);
+        if (work.deletedIds.contains(id))
+            throw new BadRequestException("find failed: missing object with id: " + id);
+
+        T object = work.objects.get(id);
+        if (object == null) {
+            object = dao.findById(id);
+            work.objects.put(id, object);
+        }
+        return object;
+    }
+
+    public <T extends BaseModel> T insert(DAOTools<T> dao, T object) {
+        workOf(dao).inserts.add(object);
+        return object;
+    }
+
+    public <T extends BaseModel> T update(DAOTools<T> dao, T object) {
+        Work<T> work = workOf(dao);
+        work.deletedIds.remove(object.getId());
+        work.objects.put(object.getId(), object);
+        work.updates.put(object.getId(), object);
+        return object;
+    }
+
+    public <T extends BaseModel> void delete(DAOTools<T> dao, T object) {
+        Work<T> work = workOf(dao);
+        work.objects.remove(object.getId());
+        work.updates.remove(object.getId());
+        work.deletedIds.add(object.getId());
+    }
+
+    public void commit() throws InternalServerException {
+        try {
+            for (Work<?> work : works.values()) {
+                work.commit();
+            }
+        } finally {
+            works.clear();
+        }
+    }
+
+    //changes that were not committed are dropped
+    @Override
+    public void close() {
+        works.clear();
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends BaseModel> Work<T> workOf(DAOTools<T> dao) {
+        return (Work<T>) works.computeIfAbsent(dao.getClass(), key -> new Work<>(dao));
+    }
+
+    private static final class Work<T extends BaseModel> {
+        private final DAOTools<T> dao;
+        private final Map<Long, T> objects = new LinkedHashMap<>();
+        private final List<T> inserts = new ArrayList<>();
+        private final Map<Long, T> updates = new LinkedHashMap<>();
+        private final Set<Long> deletedIds = new LinkedHashSet<>();
+
+        private Work(DAOTools<T> dao) {
+            this.dao = dao;
+        }
+
+        private void commit() throws InternalServerException {
+            if (inserts.isEmpty() && updates.isEmpty() && deletedIds.isEmpty()) return;
+
+            dao.commit(inserts, updates.values(), deletedIds);
+        }
+    }
+}
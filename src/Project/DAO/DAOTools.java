@@ -4,52 +4,113 @@ import Project.exception.BadRequestException;
 import Project.exception.InternalServerException;
 import Project.model.BaseModel;
 
-import java.io.*;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
 import java.util.TreeSet;
-import java.util.UUID;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 public abstract class DAOTools<T extends BaseModel> {
-    private String path;
+    private final StorageEngine<T> engine;
+    private final ChangeFeed<T> changeFeed;
+    private final IdAllocator idAllocator;
 
-    public DAOTools(String path) {
-        this.path = path;
+    public DAOTools(String name) {
+        this(name, ShardStrategy.byId(1));
+    }
+
+    public DAOTools(String name, ShardStrategy<T> shardStrategy) {
+        StorageEngineFactory factory = StorageConfig.getEngineFactory();
+
+        this.engine = shardStrategy.getShardCount() > 1
+                ? ShardedStorageEngine.create(name, this, shardStrategy, factory)
+                : factory.create(name, this);
+        this.changeFeed = ChangeFeed.forName(name);
+        this.idAllocator = IdAllocator.forName(name);
     }
 
     public abstract T map(String line);
 
+    public abstract T map(long id, DataInput in) throws IOException;
+
+    public abstract void write(T object, DataOutput out) throws IOException;
+
+    //map resolves every referenced object here, so the hot ones are served by the shared entity cache unless the
+    //engine keeps them all itself. The cache and the engine hold the stored objects, every caller gets its own copy
     public final T findById(long id) throws InternalServerException, BadRequestException {
-        for (T object : getObjectsFromDAO()) {
-            if (object.getId() == id) return object;
+        if (engine.isResident()) {
+            T object = engine.findById(id);
+            if (object == null) throw new BadRequestException("findById failed: missing object with id: " + id);
+            return copyOf(object);
         }
-        throw new BadRequestException("findById failed: missing object with id: " + id);
+
+        EntityCache cache = EntityCache.getInstance();
+        T object = cache.get(getClass(), id);
+        if (object != null) return copyOf(object);
+
+        long version = cache.getVersion(getClass(), id);
+        object = engine.findById(id);
+        if (object == null) throw new BadRequestException("findById failed: missing object with id: " + id);
+
+        cache.put(getClass(), id, object, version);
+        return copyOf(object);
     }
 
     public final TreeSet<T> getObjectsFromDAO() throws InternalServerException {
-        validateDAO(path);
+        return engine.findAll().stream()
+                .filter(Objects::nonNull)
+                .map(this::copyOf)
+                .collect(Collectors.toCollection(TreeSet::new));
+    }
 
-        try (BufferedReader br = new BufferedReader(new FileReader(path))) {
-            TreeSet<T> objects = new TreeSet<>();
-            String line;
-            while ((line = br.readLine()) != null) {
-                objects.add(map(line));
-            }
-            return objects;
-        } catch (IOException e) {
-            throw new InternalServerException("getObjectsFromDAO failed: reading from file: " + path + " failed");
-        }
+    public final Stream<T> stream() throws InternalServerException {
+        return engine.stream().map(this::copyOf);
     }
 
-    public final T addObjectToDAO(T object) throws InternalServerException {
-        validateDAO(path);
+    public final <K> LinkedList<T> findBy(SecondaryIndex<T, K> index, K key) throws InternalServerException {
+        return copiesOf(engine.findBy(index, key));
+    }
 
-        try {
-            if (object.getId() == null) object.setId(UUID.randomUUID().getMostSignificantBits() & Long.MAX_VALUE);
+    public final LinkedList<T> findByAll(Map<SecondaryIndex<T, ?>, Object> keys) throws InternalServerException {
+        return copiesOf(engine.findByAll(keys));
+    }
+
+    public final <K extends Comparable<K>> LinkedList<T> findRange(SecondaryIndex<T, K> index, IndexRange<K> range,
+                                                                   Predicate<T> filter, int limit)
+            throws InternalServerException {
+        return copiesOf(engine.findRange(index, range, filter, limit));
+    }
+
+    public final long count() throws InternalServerException {
+        return engine.count();
+    }
+
+    public final long countByAll(Map<SecondaryIndex<T, ?>, Object> keys) throws InternalServerException {
+        return engine.countByAll(keys);
+    }
+
+    public final <K extends Comparable<K>> long countRange(SecondaryIndex<T, K> index, IndexRange<K> range, long limit)
+            throws InternalServerException {
+        return engine.countRange(index, range, limit);
+    }
 
-            TreeSet<T> objects = getObjectsFromDAO();
-            objects.add(object);
+    public final T addObjectToDAO(T object) throws InternalServerException {
+        try {
+            assignId(object);
 
-            deleteDAOContent();
-            writeObjectsToDAO(objects);
+            Set<Long> insertedIds = Collections.singleton(object.getId());
+            writeToDAO(Collections.singletonList(object), Collections.emptyList(), insertedIds);
             return object;
         } catch (InternalServerException e) {
             throw new InternalServerException("addToFile failed: " + e.getMessage());
@@ -57,16 +118,9 @@ public abstract class DAOTools<T extends BaseModel> {
     }
 
     public final void deleteObjectFromDAO(T deletableObject) throws InternalServerException {
-        validateDAO(path);
-
         try {
-            TreeSet<T> objects = new TreeSet<>();
-            for (T object : getObjectsFromDAO()) {
-                if (!object.getId().equals(deletableObject.getId())) objects.add(object);
-            }
-
-            deleteDAOContent();
-            writeObjectsToDAO(objects);
+            writeToDAO(Collections.emptyList(), Collections.singletonList(deletableObject.getId()),
+                    Collections.emptySet());
         } catch (InternalServerException e) {
             throw new InternalServerException("deleteObjectFromDAO failed: " + e.getMessage());
         }
@@ -74,44 +128,138 @@ public abstract class DAOTools<T extends BaseModel> {
 
     public final T updateObjectInDAO(T updatableObject) throws InternalServerException {
         try {
-            deleteObjectFromDAO(updatableObject);
-            addObjectToDAO(updatableObject);
+            writeToDAO(Collections.singletonList(updatableObject), Collections.emptyList(), Collections.emptySet());
             return updatableObject;
         } catch (InternalServerException e) {
             throw new InternalServerException("updateObjectInDAO failed: " + e.getMessage());
         }
     }
 
-    private void validateDAO(String path) throws InternalServerException {
-        File file = new File(path);
-
-        if (!file.exists()) {
-            throw new InternalServerException("validate failed: file: " + path + " does not exist");
-        }
-        if (!file.canRead()) {
-            throw new InternalServerException("validate failed: file " + path + " does not have permissions to read");
+    public final Collection<T> addAll(Collection<T> objects) throws InternalServerException {
+        try {
+            for (T object : objects) {
+                assignId(object);
+            }
+            writeToDAO(objects, Collections.emptyList(), ids(objects));
+            return objects;
+        } catch (InternalServerException e) {
+            throw new InternalServerException("addAll failed: " + e.getMessage());
         }
-        if (!file.canWrite()) {
-            throw new InternalServerException("validate failed: file " + path + " does not have permissions to write");
+    }
+
+    public final void deleteAll(Collection<Long> ids) throws InternalServerException {
+        try {
+            writeToDAO(Collections.emptyList(), ids, Collections.emptySet());
+        } catch (InternalServerException e) {
+            throw new InternalServerException("deleteAll failed: " + e.getMessage());
         }
     }
 
-    private void writeObjectsToDAO(TreeSet<T> objects) throws InternalServerException {
-        try (BufferedWriter bw = new BufferedWriter(new FileWriter(path, true))) {
+    //objects with an id replace the stored ones, objects without an id are inserted
+    public final Collection<T> upsertAll(Collection<T> objects) throws InternalServerException {
+        try {
+            Set<Long> insertedIds = new HashSet<>();
             for (T object : objects) {
-                bw.append(object.toString());
-                bw.append("\r\n");
+                if (assignId(object)) insertedIds.add(object.getId());
+            }
+            writeToDAO(objects, Collections.emptyList(), insertedIds);
+            return objects;
+        } catch (InternalServerException e) {
+            throw new InternalServerException("upsertAll failed: " + e.getMessage());
+        }
+    }
+
+    //the changes a DAOSession recorded for this DAO, written at once
+    final void commit(Collection<T> inserts, Collection<T> updates, Collection<Long> deletedIds)
+            throws InternalServerException {
+        try {
+            for (T object : inserts) {
+                assignId(object);
             }
-        } catch (IOException e) {
-            throw new InternalServerException("writing to file: " + path + " failed");
+            List<T> puts = new ArrayList<>(inserts);
+            puts.addAll(updates);
+
+            writeToDAO(puts, deletedIds, ids(inserts));
+        } catch (InternalServerException e) {
+            throw new InternalServerException("commit failed: " + e.getMessage());
+        }
+    }
+
+    protected final void declareIndex(SecondaryIndex<T, ?> index) {
+        engine.declareIndex(index);
+    }
+
+    //the committed inserts, updates and deletes of every DAO instance with this name
+    public final ChangeFeed<T> getChangeFeed() {
+        return changeFeed;
+    }
+
+    final StorageEngine<T> getEngine() {
+        return engine;
+    }
+
+    //the invalidation also drops any old object a concurrent findById loaded before the write and caches after it;
+    //the ids stay locked until the changes are published, so the feed orders the writes of an id as they committed.
+    //The engine stores copies, a caller changing its objects later does not change the stored ones
+    private void writeToDAO(Collection<T> puts, Collection<Long> deletedIds, Set<Long> insertedIds)
+            throws InternalServerException {
+        List<T> storedPuts = copiesOf(puts);
+        int[] locks = changeFeed.lock(storedPuts, deletedIds);
+        try {
+            checkInsertedIds(insertedIds);
+            engine.write(storedPuts, deletedIds);
+            changeFeed.publish(storedPuts, deletedIds, insertedIds);
+        } finally {
+            changeFeed.unlock(locks);
+            invalidateCache(storedPuts, deletedIds);
+        }
+    }
+
+    @SuppressWarnings("unchecked")
+    final T copyOf(T object) {
+        return (T) object.copy();
+    }
+
+    final LinkedList<T> copiesOf(Collection<T> objects) {
+        LinkedList<T> copies = new LinkedList<>();
+        for (T object : objects) {
+            copies.add(copyOf(object));
         }
+        return copies;
     }
 
-    private void deleteDAOContent() throws InternalServerException {
-        try (BufferedWriter br = new BufferedWriter(new FileWriter(path))) {
-            br.write("");
-        } catch (IOException e) {
-            throw new InternalServerException("delete from file: " + path + " failed");
+    //an insert never replaces a stored object; the locked ids keep other writes of this process from storing them
+    //before the write
+    private void checkInsertedIds(Set<Long> insertedIds) throws InternalServerException {
+        for (Long id : insertedIds) {
+            if (engine.findById(id) != null)
+                throw new InternalServerException("checkInsertedIds failed: an object with id: " + id +
+                        " is already stored");
         }
     }
+
+    private Set<Long> ids(Collection<T> objects) {
+        return objects.stream().map(BaseModel::getId).collect(Collectors.toSet());
+    }
+
+    private void invalidateCache(Collection<T> puts, Collection<Long> deletedIds) {
+        EntityCache cache = EntityCache.getInstance();
+        for (T object : puts) {
+            cache.invalidate(getClass(), object.getId());
+        }
+        for (Long id : deletedIds) {
+            cache.invalidate(getClass(), id);
+        }
+    }
+
+    private boolean assignId(T object) throws InternalServerException {
+        if (object.getId() != null) return false;
+
+        object.setId(idAllocator.nextId(this::maxStoredId));
+        return true;
+    }
+
+    private long maxStoredId() throws InternalServerException {
+        return engine.stream().mapToLong(BaseModel::getId).max().orElse(0);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,106 @@
+package Project.DAO;
+
+import Project.exception.InternalServerException;
+import Project.model.BaseModel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+
+//group commit: mutations of concurrent callers queue up while the file is busy, and the caller that gets
+//the file lock next writes and forces all of them at once
+final class DAOWriteQueue {
+    private static final Map<String, DAOWriteQueue> queues = new ConcurrentHashMap<>();
+
+    private final String path;
+    private final Queue<Mutation<?>> pending = new ConcurrentLinkedQueue<>();
+
+    private DAOWriteQueue(String path) {
+        this.path = path;
+    }
+
+    static DAOWriteQueue forPath(String path) {
+        return queues.computeIfAbsent(path, DAOWriteQueue::new);
+    }
+
+    //returns once the mutation is durable on disk
+    <T extends BaseModel> void commit(FileStorageEngine<T> engine, Collection<T> puts, Collection<Long> deletedIds)
+            throws InternalServerException {
+        Mutation<T> mutation = new Mutation<>(engine.getDao(), puts, deletedIds);
+        pending.add(mutation);
+
+        synchronized (DAOLog.lockFor(path)) {
+            if (!mutation.done) flush(engine);
+        }
+        if (mutation.failure != null) throw new InternalServerException(mutation.failure);
+    }
+
+    @SuppressWarnings("unchecked")
+    private <T extends BaseModel> void flush(FileStorageEngine<T> engine) {
+        List<Mutation<?>> batch = new ArrayList<>();
+        Mutation<?> next;
+        while ((next = pending.poll()) != null) {
+            batch.add(next);
+        }
+
+        try {
+            //building the index first also cuts off a torn tail, so new records never continue a broken one
+            DAOIndex<T> index = engine.getIndex();
+
+            List<Mutation<T>> accepted = new ArrayList<>();
+            Map<SecondaryIndex<T, ?>, Map<Object, Long>> claimedKeys = new HashMap<>();
+            for (Mutation<?> queued : batch) {
+                Mutation<T> mutation = (Mutation<T>) queued;
+                mutation.failure = index.findUniqueViolation(mutation.puts, mutation.deletedIds, claimedKeys);
+                if (mutation.failure == null) accepted.add(mutation);
+            }
+
+            index.beginWrite();
+            try {
+                DAOLog.append(path, accepted);
+
+                for (Mutation<T> mutation : accepted) {
+                    mutation.applyTo(index);
+                }
+            } finally {
+                index.endWrite();
+            }
+        } catch (InternalServerException e) {
+            for (Mutation<?> mutation : batch) {
+                if (mutation.failure == null) mutation.failure = e.getMessage();
+            }
+        }
+
+        for (Mutation<?> mutation : batch) {
+            mutation.done = true;
+        }
+    }
+
+    static final class Mutation<T extends BaseModel> {
+        final DAOTools<T> dao;
+        final Collection<T> puts;
+        final Collection<Long> deletedIds;
+        private boolean done;
+        private String failure;
+
+        private Mutation(DAOTools<T> dao, Collection<T> puts, Collection<Long> deletedIds) {
+            this.dao = dao;
+            this.puts = puts;
+            this.deletedIds = deletedIds;
+        }
+
+        private void applyTo(DAOIndex<T> index) {
+            for (T object : puts) {
+                index.put(object);
+            }
+            for (Long id : deletedIds) {
+                index.remove(id);
+            }
+        }
+    }
+}
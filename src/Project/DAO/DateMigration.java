@@ -0,0 +1,13 @@
+package Project.DAO;
+
+import Project.exception.InternalServerException;
+
+//one-shot migration of the room and order files to dates in hours since the epoch; files that were not migrated
+//are still read, their dates are converted record by record
+public class DateMigration {
+
+    public static void main(String[] args) throws InternalServerException {
+        DAOFormatConverter.rewrite(new RoomDAO());
+        DAOFormatConverter.rewrite(new OrderDAO());
+    }
+}
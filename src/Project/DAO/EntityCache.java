@@ -0,0 +1,196 @@
+package Project.DAO;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Objects;
+import java.util.concurrent.atomic.LongAdder;
+
+//LRU cache of the objects found by id, shared by all DAO instances and keyed by DAO type and id
+//the weight of an object is the length of its text record; every segment has its own lock and share of the limit
+public final class EntityCache {
+    private static final EntityCache instance = new EntityCache(16, 8 * 1024 * 1024);
+
+    private final Segment[] segments;
+    private volatile long maxWeight;
+
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder evictions = new LongAdder();
+
+    public EntityCache(int segmentCount, long maxWeight) {
+        segments = new Segment[segmentCount];
+        for (int i = 0; i < segmentCount; i++) {
+            segments[i] = new Segment();
+        }
+        this.maxWeight = maxWeight;
+    }
+
+    public static EntityCache getInstance() {
+        return instance;
+    }
+
+    public long getMaxWeight() {
+        return maxWeight;
+    }
+
+    //a smaller limit takes effect on the next put of every segment
+    public void setMaxWeight(long maxWeight) {
+        this.maxWeight = maxWeight;
+    }
+
+    public long getHitCount() {
+        return hits.sum();
+    }
+
+    public long getMissCount() {
+        return misses.sum();
+    }
+
+    public long getEvictionCount() {
+        return evictions.sum();
+    }
+
+    public double getHitRate() {
+        long hitCount = hits.sum();
+        long requestCount = hitCount + misses.sum();
+        return requestCount == 0 ? 0.0 : (double) hitCount / requestCount;
+    }
+
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.entries.size();
+            }
+        }
+        return size;
+    }
+
+    public long getWeight() {
+        long weight = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                weight += segment.weight;
+            }
+        }
+        return weight;
+    }
+
+    public void clear() {
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.entries.clear();
+                segment.weight = 0;
+                segment.invalidations++;
+            }
+        }
+    }
+
+    @Override
+    public String toString() {
+        return String.format("hits: %d, misses: %d, hit rate: %.2f, evictions: %d, size: %d, weight: %d",
+                getHitCount(), getMissCount(), getHitRate(), getEvictionCount(), size(), getWeight());
+    }
+
+    @SuppressWarnings("unchecked")
+    <T> T get(Class<?> type, long id) {
+        Key key = new Key(type, id);
+        Segment segment = segmentFor(key);
+
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.entries.get(key);
+        }
+        if (entry == null) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return (T) entry.object;
+    }
+
+    //taken before loading an object; put drops the object if a write invalidated the segment in the meantime
+    long getVersion(Class<?> type, long id) {
+        Segment segment = segmentFor(new Key(type, id));
+        synchronized (segment) {
+            return segment.invalidations;
+        }
+    }
+
+    void put(Class<?> type, long id, Object object, long version) {
+        Key key = new Key(type, id);
+        Segment segment = segmentFor(key);
+        int weight = object.toString().length();
+        long segmentMaxWeight = maxWeight / segments.length;
+
+        synchronized (segment) {
+            if (segment.invalidations != version || weight > segmentMaxWeight) return;
+
+            Entry oldEntry = segment.entries.put(key, new Entry(object, weight));
+            if (oldEntry != null) segment.weight -= oldEntry.weight;
+            segment.weight += weight;
+
+            Iterator<Entry> eldest = segment.entries.values().iterator();
+            while (segment.weight > segmentMaxWeight) {
+                segment.weight -= eldest.next().weight;
+                eldest.remove();
+                evictions.increment();
+            }
+        }
+    }
+
+    void invalidate(Class<?> type, long id) {
+        Key key = new Key(type, id);
+        Segment segment = segmentFor(key);
+
+        synchronized (segment) {
+            Entry oldEntry = segment.entries.remove(key);
+            if (oldEntry != null) segment.weight -= oldEntry.weight;
+            segment.invalidations++;
+        }
+    }
+
+    private Segment segmentFor(Key key) {
+        return segments[Math.floorMod(key.hashCode(), segments.length)];
+    }
+
+    private static final class Segment {
+        private final Map<Key, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+        private long weight;
+        private long invalidations;
+    }
+
+    private static final class Entry {
+        private final Object object;
+        private final int weight;
+
+        private Entry(Object object, int weight) {
+            this.object = object;
+            this.weight = weight;
+        }
+    }
+
+    private static final class Key {
+        private final Class<?> type;
+        private final long id;
+
+        private Key(Class<?> type, long id) {
+            this.type = type;
+            this.id = id;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof Key)) return false;
+            Key key = (Key) o;
+            return id == key.id && type == key.type;
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(type, id);
+        }
+    }
+}
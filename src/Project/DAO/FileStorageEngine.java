@@ -0,0 +1,174 @@
+package Project.DAO;
+
+import Project.exception.InternalServerException;
+import Project.model.BaseModel;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+//log-structured file of put and tombstone records in text or binary format, with a resident primary-key index
+public final class FileStorageEngine<T extends BaseModel> implements StorageEngine<T> {
+    private static final Set<String> recoveredPaths = ConcurrentHashMap.newKeySet();
+
+    private final String path;
+    private final DAOTools<T> dao;
+
+    private FileStorageEngine(String path, DAOTools<T> dao) {
+        this.path = path;
+        this.dao = dao;
+        DAOCompactor.getInstance().register(path);
+        if (recoveredPaths.add(path)) recover();
+    }
+
+    public static <T extends BaseModel> StorageEngine<T> create(String name, DAOTools<T> dao) {
+        return new FileStorageEngine<>(new File(StorageConfig.getDataDirectory(), name).getPath(), dao);
+    }
+
+    @Override
+    public boolean isResident() {
+        return true;
+    }
+
+    @Override
+    public T findById(long id) throws InternalServerException {
+        validateDAO(path);
+
+        return getIndex().get(id);
+    }
+
+    @Override
+    public List<T> findAll() throws InternalServerException {
+        validateDAO(path);
+
+        return DAOLog.read(path).getLiveObjects(dao);
+    }
+
+    //parses records only as the stream consumes them, so a query that stops early never maps the rest of the file
+    @Override
+    public Stream<T> stream() throws InternalServerException {
+        validateDAO(path);
+
+        return DAOLog.read(path).stream(dao).filter(Objects::nonNull);
+    }
+
+    @Override
+    public void write(Collection<T> puts, Collection<Long> deletedIds) throws InternalServerException {
+        validateDAO(path);
+
+        DAOWriteQueue.forPath(path).commit(this, puts, deletedIds);
+    }
+
+    @Override
+    public void declareIndex(SecondaryIndex<T, ?> index) {
+        DAOIndex.<T>forPath(path).declare(index);
+    }
+
+    @Override
+    public <K> List<T> findBy(SecondaryIndex<T, K> index, K key) throws InternalServerException {
+        validateDAO(path);
+
+        return getIndex().findBy(index, key);
+    }
+
+    @Override
+    public List<T> findByAll(Map<SecondaryIndex<T, ?>, Object> keys) throws InternalServerException {
+        validateDAO(path);
+
+        return getIndex().findByAll(keys);
+    }
+
+    @Override
+    public <K extends Comparable<K>> List<T> findRange(SecondaryIndex<T, K> index, IndexRange<K> range,
+                                                       Predicate<T> filter, int limit)
+            throws InternalServerException {
+        validateDAO(path);
+
+        return getIndex().findRange(index, range, filter, limit);
+    }
+
+    @Override
+    public long count() throws InternalServerException {
+        validateDAO(path);
+
+        return getIndex().count();
+    }
+
+    @Override
+    public long countByAll(Map<SecondaryIndex<T, ?>, Object> keys) throws InternalServerException {
+        validateDAO(path);
+
+        return getIndex().countByAll(keys);
+    }
+
+    @Override
+    public <K extends Comparable<K>> long countRange(SecondaryIndex<T, K> index, IndexRange<K> range, long limit)
+            throws InternalServerException {
+        validateDAO(path);
+
+        return getIndex().countRange(index, range, limit);
+    }
+
+    public String getPath() {
+        return path;
+    }
+
+    DAOTools<T> getDao() {
+        return dao;
+    }
+
+    DAOIndex<T> getIndex() throws InternalServerException {
+        DAOIndex<T> index = DAOIndex.forPath(path);
+        if (!index.isStale()) return index;
+
+        synchronized (DAOLog.lockFor(path)) {
+            if (index.isStale()) {
+                DAOLog log = DAOLog.read(path);
+                if (log.hasTornTail()) dropTornTail(log);
+
+                index.rebuild(log.getLiveObjects(dao));
+            }
+        }
+        return index;
+    }
+
+    //the first engine of a file checks it once on open, so a crash is repaired before the first request
+    private void recover() {
+        if (!new File(path).exists()) return;
+
+        synchronized (DAOLog.lockFor(path)) {
+            try {
+                DAOLog log = DAOLog.read(path);
+                if (log.hasTornTail()) dropTornTail(log);
+            } catch (InternalServerException e) {
+                System.err.println("recover failed: " + e.getMessage());
+            }
+        }
+    }
+
+    private void dropTornTail(DAOLog log) throws InternalServerException {
+        DAOLog.truncate(path, log.getValidLength());
+        System.err.println("recover: file: " + path + " dropped a torn or corrupt tail of " +
+                log.getDroppedLength() + " bytes at offset " + log.getValidLength());
+    }
+
+    private void validateDAO(String path) throws InternalServerException {
+        File file = new File(path);
+
+        if (!file.exists()) {
+            throw new InternalServerException("validate failed: file: " + path + " does not exist");
+        }
+        if (!file.canRead()) {
+            throw new InternalServerException("validate failed: file " + path + " does not have permissions to read");
+        }
+        if (!file.canWrite()) {
+            throw new InternalServerException("validate failed: file " + path + " does not have permissions to write");
+        }
+    }
+}
@@ -4,20 +4,26 @@ import Project.exception.BadRequestException;
 import Project.exception.InternalServerException;
 import Project.model.Hotel;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.Collection;
+import java.util.HashSet;
 import java.util.LinkedList;
+import java.util.Set;
 
 public class HotelDAO extends DAOTools<Hotel> {
+    public static final SecondaryIndex<Hotel, String> BY_NAME = SecondaryIndex.nonUnique("name", Hotel::getName);
+    public static final SecondaryIndex<Hotel, String> BY_CITY = SecondaryIndex.nonUnique("city", Hotel::getCity);
 
     public HotelDAO() {
-        super("E:/Project/HotelDb.txt");
+        super("HotelDb.txt", ShardStrategy.byId(StorageConfig.getShardCount()));
+        declareIndex(BY_NAME);
+        declareIndex(BY_CITY);
     }
 
     public LinkedList<Hotel> findHotelByName(String name) throws InternalServerException, BadRequestException {
-        LinkedList<Hotel> resultHotels = new LinkedList<>();
-
-        for (Hotel hotel : getObjectsFromDAO()) {
-            if (hotel.getName().equals(name)) resultHotels.add(hotel);
-        }
+        LinkedList<Hotel> resultHotels = findBy(BY_NAME, name);
 
         if (resultHotels.size() == 0) {
             throw new BadRequestException("checkSize failed: there is no hotels with this parameters");
@@ -26,11 +32,7 @@ public class HotelDAO extends DAOTools<Hotel> {
     }
 
     public LinkedList<Hotel> findHotelByCity(String city) throws InternalServerException, BadRequestException {
-        LinkedList<Hotel> resultHotels = new LinkedList<>();
-
-        for (Hotel hotel : getObjectsFromDAO()) {
-            if (hotel.getCity().equals(city)) resultHotels.add(hotel);
-        }
+        LinkedList<Hotel> resultHotels = findBy(BY_CITY, city);
 
         if (resultHotels.size() == 0) {
             throw new BadRequestException("checkSize failed: there is no hotels with this parameters");
@@ -40,15 +42,40 @@ public class HotelDAO extends DAOTools<Hotel> {
 
     @Override
     public Hotel map(String line) {
-        String[] fields = line.split(", ");
+        RecordTokenizer fields = new RecordTokenizer(line);
+
+        return new Hotel(fields.nextLong(), fields.nextString(), fields.nextString(), fields.nextString(),
+                fields.nextString());
+    }
+
+    @Override
+    public Hotel map(long id, DataInput in) throws IOException {
+        return new Hotel(id, in.readUTF(), in.readUTF(), in.readUTF(), in.readUTF());
+    }
 
-        return new Hotel(Long.parseLong(fields[0]), fields[1], fields[2], fields[3], fields[4]);
+    @Override
+    public void write(Hotel hotel, DataOutput out) throws IOException {
+        out.writeUTF(hotel.getName());
+        out.writeUTF(hotel.getCountry());
+        out.writeUTF(hotel.getCity());
+        out.writeUTF(hotel.getStreet());
     }
 
     public void doesTheHotelExist(Hotel hotel) throws InternalServerException, BadRequestException {
-        for (Hotel hotel1 : getObjectsFromDAO()) {
+        for (Hotel hotel1 : findBy(BY_NAME, hotel.getName())) {
             if (hotel1.equals(hotel))
                 throw new BadRequestException("isExist failed: the hotel is already exist: " + hotel1.getId());
         }
     }
+
+    public void doTheHotelsExist(Collection<Hotel> hotels) throws InternalServerException, BadRequestException {
+        Set<Hotel> newHotels = new HashSet<>();
+        for (Hotel hotel : hotels) {
+            if (!newHotels.add(hotel))
+                throw new BadRequestException("isExist failed: the hotel is added twice: " + hotel.getName());
+        }
+        for (Hotel hotel : hotels) {
+            doesTheHotelExist(hotel);
+        }
+    }
 }
\ No newline at end of file
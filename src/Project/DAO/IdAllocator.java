@@ -0,0 +1,161 @@
+package Project.DAO;
+
+import Project.exception.InternalServerException;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.zip.CRC32C;
+
+//hands out the ids of one DAO name from a block reserved in the file <name>.ids of the data directory. The file
+//holds the reserved limit in two checksummed slots written alternately, so a torn write leaves the older one; the
+//ids of a block lost in a crash are skipped, never handed out twice. Between reservations nextId is a lock-free
+//compare-and-set. TIME_ORDERED ids are the milliseconds since 2020 shifted left by 12 bits, so they sort by
+//creation time; without a data directory the blocks are reserved in memory only. The first reservation of a process
+//also starts above the largest id already stored, for data files written before or without their .ids file
+public final class IdAllocator {
+    public enum Mode {
+        SEQUENTIAL,
+        TIME_ORDERED
+    }
+
+    //the largest id of the stored objects, or 0
+    public interface StoredIds {
+        long maxId() throws InternalServerException;
+    }
+
+    private static final int BLOCK_SIZE = 1024;
+    private static final long TIME_RESERVE_MILLIS = 60_000;
+    private static final int TIME_SHIFT = 12;
+    private static final long TIME_EPOCH = 1_577_836_800_000L;
+    private static final int SLOT_SIZE = 12;
+    private static final Map<String, IdAllocator> allocators = new ConcurrentHashMap<>();
+
+    private final String path;
+    private final Mode mode;
+    private final AtomicLong last = new AtomicLong();
+    private volatile long limit;
+    private boolean storedIdsChecked;
+
+    private IdAllocator(String path, Mode mode) {
+        this.path = path;
+        this.mode = mode;
+    }
+
+    static IdAllocator forName(String name) {
+        return allocators.computeIfAbsent(name, key -> new IdAllocator(idsPath(key), StorageConfig.getIdMode()));
+    }
+
+    public long nextId(StoredIds storedIds) throws InternalServerException {
+        while (true) {
+            long current = last.get();
+            long id = mode == Mode.TIME_ORDERED ? Math.max(current + 1, timeId(current)) : current + 1;
+
+            if (id >= limit) {
+                reserve(id, storedIds);
+            } else if (last.compareAndSet(current, id)) {
+                return id;
+            }
+        }
+    }
+
+    public Mode getMode() {
+        return mode;
+    }
+
+    //the low bits keep counting across milliseconds, so ids of sparse inserts still spread over the shards
+    private static long timeId(long current) {
+        return (System.currentTimeMillis() - TIME_EPOCH << TIME_SHIFT) + ((current + 1) & ((1 << TIME_SHIFT) - 1));
+    }
+
+    //another process may have reserved since the last block, so a block starts no lower than what the file holds
+    private synchronized void reserve(long id, StoredIds storedIds) throws InternalServerException {
+        if (id < limit) return;
+
+        if (!storedIdsChecked) {
+            id = Math.max(id, storedIds.maxId() + 1);
+            storedIdsChecked = true;
+        }
+
+        if (path == null) {
+            long start = Math.max(id, limit);
+            advance(start, limitAfter(start));
+            return;
+        }
+
+        //the lock is released when the channel closes
+        try (FileChannel channel = openIdsFile()) {
+            channel.lock();
+            long[] slots = readSlots(channel);
+            long start = Math.max(id, slots[2]);
+            long newLimit = limitAfter(start);
+
+            ByteBuffer slot = ByteBuffer.allocate(SLOT_SIZE).putLong(newLimit).putInt(checksum(newLimit));
+            channel.write(slot.flip(), slots[0] <= slots[1] ? 0 : SLOT_SIZE);
+            channel.force(false);
+            advance(start, newLimit);
+        } catch (IOException e) {
+            throw new InternalServerException("reserve failed: writing file: " + path + " failed");
+        }
+    }
+
+    private long limitAfter(long start) {
+        if (mode == Mode.SEQUENTIAL) return start + BLOCK_SIZE;
+
+        long reservedTime = System.currentTimeMillis() + TIME_RESERVE_MILLIS - TIME_EPOCH << TIME_SHIFT;
+        return Math.max(start + BLOCK_SIZE, reservedTime);
+    }
+
+    private void advance(long start, long newLimit) {
+        last.accumulateAndGet(start - 1, Math::max);
+        limit = newLimit;
+    }
+
+    //the two slot values, -1 where a slot is missing or torn, and the larger of them or 0
+    private long[] readSlots(FileChannel channel) throws IOException, InternalServerException {
+        ByteBuffer slots = ByteBuffer.allocate(SLOT_SIZE * 2);
+        while (slots.hasRemaining()) {
+            if (channel.read(slots, slots.position()) < 0) break;
+        }
+
+        //only the very first reservation can leave a file shorter than both slots, and it handed out no id yet
+        long[] values = {readSlot(slots, 0), readSlot(slots, SLOT_SIZE), 0};
+        if (!slots.hasRemaining() && values[0] < 0 && values[1] < 0)
+            throw new InternalServerException("readSlots failed: file: " + path + " has no valid reservation");
+
+        values[2] = Math.max(0, Math.max(values[0], values[1]));
+        return values;
+    }
+
+    private static long readSlot(ByteBuffer slots, int offset) {
+        if (slots.position() < offset + SLOT_SIZE) return -1;
+
+        long value = slots.getLong(offset);
+        return slots.getInt(offset + 8) == checksum(value) ? value : -1;
+    }
+
+    private static int checksum(long value) {
+        CRC32C checksum = new CRC32C();
+        checksum.update(ByteBuffer.allocate(8).putLong(value).flip());
+        return (int) checksum.getValue();
+    }
+
+    private FileChannel openIdsFile() throws IOException {
+        return FileChannel.open(Paths.get(path), StandardOpenOption.CREATE, StandardOpenOption.READ,
+                StandardOpenOption.WRITE);
+    }
+
+    private static String idsPath(String name) {
+        File directory = new File(StorageConfig.getDataDirectory());
+        if (!directory.isDirectory()) return null;
+
+        int dot = name.lastIndexOf('.');
+        return new File(directory, (dot < 0 ? name : name.substring(0, dot)) + ".ids").getPath();
+    }
+}
@@ -0,0 +1,65 @@
+package Project.DAO;
+
+//the keys a sorted index is read for: from and to are inclusive and either may be null for an open end; after is the
+//position of the last object a previous read returned, so the next read starts behind it
+public final class IndexRange<K extends Comparable<K>> {
+    private final K from;
+    private final K to;
+    private final K afterKey;
+    private final long afterId;
+    private final boolean hasAfter;
+
+    private IndexRange(K from, K to, K afterKey, long afterId, boolean hasAfter) {
+        this.from = from;
+        this.to = to;
+        this.afterKey = afterKey;
+        this.afterId = afterId;
+        this.hasAfter = hasAfter;
+    }
+
+    public static <K extends Comparable<K>> IndexRange<K> all() {
+        return new IndexRange<>(null, null, null, 0, false);
+    }
+
+    public static <K extends Comparable<K>> IndexRange<K> between(K from, K to) {
+        return new IndexRange<>(from, to, null, 0, false);
+    }
+
+    public IndexRange<K> after(K key, long id) {
+        return new IndexRange<>(from, to, key, id, true);
+    }
+
+    K getFrom() {
+        return from;
+    }
+
+    K getTo() {
+        return to;
+    }
+
+    K getAfterKey() {
+        return afterKey;
+    }
+
+    long getAfterId() {
+        return afterId;
+    }
+
+    boolean hasAfter() {
+        return hasAfter;
+    }
+
+    //whether the key is between from and to
+    boolean contains(K key) {
+        return key != null && (from == null || key.compareTo(from) >= 0) && (to == null || key.compareTo(to) <= 0);
+    }
+
+    //whether an object with this key and id is read by the range, which also starts behind after
+    boolean contains(K key, long id) {
+        if (!contains(key)) return false;
+        if (!hasAfter) return true;
+
+        int order = key.compareTo(afterKey);
+        return order > 0 || order == 0 && id > afterId;
+    }
+}
@@ -0,0 +1,100 @@
+package Project.DAO;
+
+import Project.exception.InternalServerException;
+import Project.model.BaseModel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+//keeps the objects of a DAO only in memory, shared by every DAO instance with the same name
+public final class MemoryStorageEngine<T extends BaseModel> implements StorageEngine<T> {
+    private static final Map<String, MemoryStorageEngine<?>> engines = new ConcurrentHashMap<>();
+
+    private final Map<Long, T> objects = new ConcurrentHashMap<>();
+    private final SecondaryIndexSet<T> secondaryIndexes = new SecondaryIndexSet<>();
+
+    private MemoryStorageEngine() {
+    }
+
+    @SuppressWarnings("unchecked")
+    public static <T extends BaseModel> StorageEngine<T> create(String name, DAOTools<T> dao) {
+        return (StorageEngine<T>) engines.computeIfAbsent(name, key -> new MemoryStorageEngine<>());
+    }
+
+    @Override
+    public boolean isResident() {
+        return true;
+    }
+
+    @Override
+    public T findById(long id) {
+        return objects.get(id);
+    }
+
+    @Override
+    public List<T> findAll() {
+        return new ArrayList<>(objects.values());
+    }
+
+    @Override
+    public Stream<T> stream() {
+        return objects.values().stream();
+    }
+
+    @Override
+    public synchronized void write(Collection<T> puts, Collection<Long> deletedIds) throws InternalServerException {
+        String violation = secondaryIndexes.findUniqueViolation(puts, deletedIds, new HashMap<>());
+        if (violation != null) throw new InternalServerException("write failed: " + violation);
+
+        for (T object : puts) {
+            objects.put(object.getId(), object);
+            secondaryIndexes.put(object);
+        }
+        for (Long id : deletedIds) {
+            T oldObject = objects.remove(id);
+            if (oldObject != null) secondaryIndexes.remove(oldObject);
+        }
+    }
+
+    @Override
+    public synchronized void declareIndex(SecondaryIndex<T, ?> index) {
+        if (secondaryIndexes.declare(index)) secondaryIndexes.build(index, objects.values());
+    }
+
+    @Override
+    public <K> List<T> findBy(SecondaryIndex<T, K> index, K key) {
+        return secondaryIndexes.find(index, key);
+    }
+
+    @Override
+    public List<T> findByAll(Map<SecondaryIndex<T, ?>, Object> keys) {
+        return secondaryIndexes.findAll(keys);
+    }
+
+    @Override
+    public <K extends Comparable<K>> List<T> findRange(SecondaryIndex<T, K> index, IndexRange<K> range,
+                                                       Predicate<T> filter, int limit) {
+        return secondaryIndexes.findRange(index, range, filter, limit);
+    }
+
+    @Override
+    public long count() {
+        return objects.size();
+    }
+
+    @Override
+    public long countByAll(Map<SecondaryIndex<T, ?>, Object> keys) {
+        return secondaryIndexes.count(keys);
+    }
+
+    @Override
+    public <K extends Comparable<K>> long countRange(SecondaryIndex<T, K> index, IndexRange<K> range, long limit) {
+        return secondaryIndexes.countRange(index, range, limit);
+    }
+}
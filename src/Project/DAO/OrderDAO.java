@@ -2,90 +2,146 @@ package Project.DAO;
 
 import Project.exception.BadRequestException;
 import Project.exception.InternalServerException;
+import Project.model.DateCodec;
 import Project.model.Order;
+import Project.model.Reference;
 import Project.model.Room;
 
-import java.text.SimpleDateFormat;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.time.LocalDateTime;
+import java.util.Arrays;
 import java.util.Date;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
 
 public class OrderDAO extends DAOTools<Order> {
+    public static final SecondaryIndex<Order, List<Long>> BY_ROOM_AND_USER = SecondaryIndex.nonUnique(
+            "roomAndUser", order -> Arrays.asList(order.getRoomId(), order.getUserId()));
+    public static final SecondaryIndex<Order, Integer> BY_MONTH =
+            SecondaryIndex.nonUnique("month", order -> monthOf(order.getDateFromHours()));
+
     private static UserDAO userDAO = new UserDAO();
     private static RoomDAO roomDAO = new RoomDAO();
 
     public OrderDAO() {
-        super("E:/Project/OrderDb.txt");
+        super("OrderDb.txt", ShardStrategy.byKey(StorageConfig.getShardCount(), BY_MONTH));
+        declareIndex(BY_ROOM_AND_USER);
+        declareIndex(BY_MONTH);
     }
 
     @Override
     public Order map(String line) {
         try {
-            String[] fields = line.split(", ");
+            RecordTokenizer fields = new RecordTokenizer(line);
 
-            SimpleDateFormat simpleDateFormat = new SimpleDateFormat("dd.MM.yyyy kk:00");
             return new Order(
-                    Long.parseLong(fields[0]),
-                    userDAO.findById(Long.parseLong(fields[1])),
-                    roomDAO.findById(Long.parseLong(fields[2])),
-                    simpleDateFormat.parse(fields[3]),
-                    simpleDateFormat.parse(fields[4]),
-                    Double.parseDouble(fields[5]));
+                    fields.nextLong(),
+                    Reference.lazy(fields.nextLong(), userDAO::findById),
+                    Reference.lazy(fields.nextLong(), roomDAO::findById),
+                    fields.nextHours(),
+                    fields.nextHours(),
+                    fields.nextDouble());
         } catch (Exception e) {
             System.err.println("Something went wrong");
         }
         return null;
     }
 
-    public Order findOrderByRoomAndUser(long roomId, long userId) throws InternalServerException, BadRequestException {
-        for (Order order : getObjectsFromDAO()) {
-            if (order.getRoom().getId() == roomId && order.getUser().getId() == userId) return order;
+    @Override
+    public Order map(long id, DataInput in) {
+        try {
+            return new Order(
+                    id,
+                    Reference.lazy(in.readLong(), userDAO::findById),
+                    Reference.lazy(in.readLong(), roomDAO::findById),
+                    DateCodec.fromStored(in.readLong()),
+                    DateCodec.fromStored(in.readLong()),
+                    in.readDouble());
+        } catch (Exception e) {
+            System.err.println("Something went wrong");
         }
-        throw new BadRequestException("findOrderByRoomAndUser failed: Missing order");
+        return null;
     }
 
-    public void checkRoomForBusy(long roomId, Date dateFrom, Date dateTo)
-            throws InternalServerException, BadRequestException {
-        Date dateAvailableFrom = updateRoomDateAvailFrom(roomId).getDateAvailableFrom();
+    @Override
+    public void write(Order order, DataOutput out) throws IOException {
+        out.writeLong(order.getUserId());
+        out.writeLong(order.getRoomId());
+        out.writeLong(order.getDateFromHours());
+        out.writeLong(order.getDateToHours());
+        out.writeDouble(order.getMoneyPaid());
+    }
 
-        if (dateAvailableFrom.after(dateFrom))
-            throw new BadRequestException("checkRoomForBusy failed: the room is busy until " + dateAvailableFrom);
+    public Order findOrderByRoomAndUser(long roomId, long userId) throws InternalServerException, BadRequestException {
+        LinkedList<Order> orders = findBy(BY_ROOM_AND_USER, Arrays.asList(roomId, userId));
 
-        Date busyTimeRoomFrom;
-        Date busyTimeRoomTo;
-        for (Order order : getObjectsFromDAO()) {
+        if (orders.isEmpty()) throw new BadRequestException("findOrderByRoomAndUser failed: Missing order");
+        return orders.getFirst();
+    }
 
-            busyTimeRoomFrom = order.getDateFrom();
-            busyTimeRoomTo = order.getDateTo();
+    //one pass over the orders moves the availability of the room past the orders that overlap it and finds an order
+    //that overlaps the requested dates; the moved room is a new copy that is only recorded in the session
+    public void checkRoomForBusy(DAOSession session, long roomId, Date dateFrom, Date dateTo)
+            throws InternalServerException, BadRequestException {
+        Room room = session.find(roomDAO, roomId);
+        int roomDateAvailableFrom = room.getDateAvailableFromHours();
+        long now = System.currentTimeMillis();
+
+        int busyTimeRoomTo = DateCodec.NONE;
+        Order busyOrder = null;
+        Iterator<Order> orders = stream().iterator();
+        while (orders.hasNext()) {
+            Order order = orders.next();
+            int orderFrom = order.getDateFromHours();
+            int orderTo = order.getDateToHours();
+
+            if (orderTo > roomDateAvailableFrom && orderFrom < roomDateAvailableFrom && orderTo > busyTimeRoomTo)
+                busyTimeRoomTo = orderTo;
+            long orderToMillis = DateCodec.toMillis(orderTo);
+            if (busyOrder == null && orderToMillis > now && orderToMillis >= dateFrom.getTime() &&
+                    DateCodec.toMillis(orderFrom) <= dateTo.getTime())
+                busyOrder = order;
+        }
 
-            if (order.getDateTo().after(new Date()) &&
-                    !(busyTimeRoomTo.before(dateFrom) || busyTimeRoomFrom.after(dateTo))) {
-                SimpleDateFormat simpleDateFormat = new SimpleDateFormat("dd.MM.yyyy kk:00");
+        if (busyTimeRoomTo != DateCodec.NONE) {
+            room = room.copy();
+            room.setDateAvailableFromHours(busyTimeRoomTo);
+            session.update(roomDAO, room);
+        }
 
-                throw new BadRequestException("checkRoomForBusy failed: the room is busy from " +
-                        simpleDateFormat.format(busyTimeRoomFrom) + " to " + simpleDateFormat.format(busyTimeRoomTo));
-            }
+        Date dateAvailableFrom = room.getDateAvailableFrom();
+        if (dateAvailableFrom.after(dateFrom))
+            throw new BadRequestException("checkRoomForBusy failed: the room is busy until " + dateAvailableFrom);
+
+        if (busyOrder != null) {
+            throw new BadRequestException("checkRoomForBusy failed: the room is busy from " +
+                    DateCodec.format(busyOrder.getDateFromHours()) + " to " +
+                    DateCodec.format(busyOrder.getDateToHours()));
         }
     }
 
-    public Order createOrder(long roomId, long userId, Date dateFrom, Date dateTo)
+    public LinkedList<Order> findOrdersByMonth(Date date) throws InternalServerException {
+        return findBy(BY_MONTH, monthOf(DateCodec.toHours(date)));
+    }
+
+    public Order createOrder(DAOSession session, long roomId, long userId, Date dateFrom, Date dateTo)
             throws InternalServerException, BadRequestException {
+        Room room = session.find(roomDAO, roomId);
+
         return new Order(
-                userDAO.findById(userId),
-                roomDAO.findById(roomId),
+                session.find(userDAO, userId),
+                room,
                 dateFrom,
                 dateTo,
-                roomDAO.findById(roomId).getPrice());
+                room.getPrice());
     }
 
-    private Room updateRoomDateAvailFrom(Long id) throws InternalServerException, BadRequestException {
-        Room room = roomDAO.findById(id);
-
-        Date busyTimeRoomTo;
-        Date RoomDateAvailableFrom = room.getDateAvailableFrom();
-        for (Order order : getObjectsFromDAO()) {
-            if ((busyTimeRoomTo = order.getDateTo()).after(RoomDateAvailableFrom) &&
-                    order.getDateFrom().before(RoomDateAvailableFrom))
-                room.setDateAvailableFrom(busyTimeRoomTo);
-        }
-        return roomDAO.updateObjectInDAO(room);
+    //months since year 0, so consecutive months of bookings land on consecutive shards
+    private static int monthOf(int hours) {
+        LocalDateTime dateTime = DateCodec.toLocalDateTime(hours);
+        return dateTime.getYear() * 12 + dateTime.getMonthValue() - 1;
     }
-}
\ No newline at end of file
+}
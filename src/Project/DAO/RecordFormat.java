@@ -0,0 +1,7 @@
+package Project.DAO;
+
+public enum RecordFormat {
+    TEXT,
+    BINARY,
+    COMPRESSED
+}
@@ -0,0 +1,164 @@
+package Project.DAO;
+
+import Project.model.DateCodec;
+
+import java.util.Calendar;
+import java.util.Date;
+
+//reads the ", "-separated fields of a text record in order, parsing numbers, booleans and dates straight from the
+//chars of the line; only string fields allocate. One instance per map call, so nested map calls can not clash
+public final class RecordTokenizer {
+    private static final String SEPARATOR = ", ";
+    private static final double[] POWERS_OF_TEN = {
+            1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+            1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22};
+    private static final ThreadLocal<Calendar> calendars = ThreadLocal.withInitial(Calendar::getInstance);
+
+    private final String line;
+    private int start;
+    private int end;
+
+    public RecordTokenizer(String line) {
+        this.line = line;
+        this.end = -SEPARATOR.length();
+    }
+
+    public boolean hasNext() {
+        return end + SEPARATOR.length() <= line.length();
+    }
+
+    public RecordTokenizer skip() {
+        advance();
+        return this;
+    }
+
+    public String nextString() {
+        advance();
+        return line.substring(start, end);
+    }
+
+    public long nextLong() {
+        advance();
+        return parseLong(start, end);
+    }
+
+    public int nextInt() {
+        long value = nextLong();
+        if (value != (int) value) throw error();
+        return (int) value;
+    }
+
+    public boolean nextBoolean() {
+        advance();
+        return end - start == 4 && line.regionMatches(true, start, "true", 0, 4);
+    }
+
+    //decimal digits with an optional fraction and exponent, as Double.toString writes them; mantissas of more than
+    //15 digits can not be scaled exactly and, like anything else unusual, go through Double.parseDouble
+    public double nextDouble() {
+        advance();
+
+        int position = start;
+        boolean negative = position < end && line.charAt(position) == '-';
+        if (negative) position++;
+
+        long mantissa = 0;
+        int digits = 0;
+        int scale = 0;
+        boolean fraction = false;
+        boolean anyDigit = false;
+        for (; position < end; position++) {
+            char c = line.charAt(position);
+            if (c == '.' && !fraction) {
+                fraction = true;
+            } else if (c >= '0' && c <= '9') {
+                anyDigit = true;
+                if (mantissa == 0 && c == '0') {
+                    if (fraction) scale--;
+                    continue;
+                }
+                if (++digits > 15) return parseDoubleSlowly();
+                mantissa = mantissa * 10 + (c - '0');
+                if (fraction) scale--;
+            } else {
+                break;
+            }
+        }
+        if (!anyDigit) return parseDoubleSlowly();
+        if (position < end) {
+            if (line.charAt(position) != 'E' || position + 5 < end) return parseDoubleSlowly();
+            scale += (int) parseLong(position + 1, end);
+        }
+
+        double value;
+        if (mantissa == 0) value = 0.0;
+        else if (scale >= 0 && scale < POWERS_OF_TEN.length) value = mantissa * POWERS_OF_TEN[scale];
+        else if (scale < 0 && -scale < POWERS_OF_TEN.length) value = mantissa / POWERS_OF_TEN[-scale];
+        else return parseDoubleSlowly();
+        return negative ? -value : value;
+    }
+
+    //the "dd.MM.yyyy kk:mm" format of the text records, read in the default time zone like SimpleDateFormat does
+    public Date nextDate() {
+        advance();
+        return new Date(parseDateMillis());
+    }
+
+    //hours since the epoch as the models keep them; records written before that hold a date in nextDate's format
+    public int nextHours() {
+        advance();
+        if (end - start == 16 && line.charAt(start + 2) == '.') return DateCodec.toHours(parseDateMillis());
+        if (line.startsWith("null", start) && end - start == 4) return DateCodec.NONE;
+
+        long hours = parseLong(start, end);
+        if (hours != (int) hours) throw error();
+        return (int) hours;
+    }
+
+    private long parseDateMillis() {
+        if (end - start != 16 || line.charAt(start + 2) != '.' || line.charAt(start + 5) != '.' ||
+                line.charAt(start + 10) != ' ' || line.charAt(start + 13) != ':') throw error();
+
+        Calendar calendar = calendars.get();
+        calendar.clear();
+        calendar.set((int) parseLong(start + 6, start + 10), (int) parseLong(start + 3, start + 5) - 1,
+                (int) parseLong(start, start + 2), (int) parseLong(start + 11, start + 13) % 24,
+                (int) parseLong(start + 14, start + 16));
+        return calendar.getTimeInMillis();
+    }
+
+    private void advance() {
+        if (!hasNext()) throw new IllegalStateException("RecordTokenizer failed: no more fields in: " + line);
+
+        start = end + SEPARATOR.length();
+        end = line.indexOf(SEPARATOR, start);
+        if (end < 0) end = line.length();
+    }
+
+    //accumulates negatively like Long.parseLong, so Long.MIN_VALUE parses and every overflow is caught
+    private long parseLong(int from, int to) {
+        boolean negative = from < to && line.charAt(from) == '-';
+        int position = negative || from < to && line.charAt(from) == '+' ? from + 1 : from;
+        if (position == to) throw error();
+
+        long limit = negative ? Long.MIN_VALUE : -Long.MAX_VALUE;
+        long value = 0;
+        for (; position < to; position++) {
+            int digit = line.charAt(position) - '0';
+            if (digit < 0 || digit > 9 || value < limit / 10) throw error();
+
+            value *= 10;
+            if (value < limit + digit) throw error();
+            value -= digit;
+        }
+        return negative ? value : -value;
+    }
+
+    private double parseDoubleSlowly() {
+        return Double.parseDouble(line.substring(start, end));
+    }
+
+    private NumberFormatException error() {
+        return new NumberFormatException("RecordTokenizer failed: broken field: " + line.substring(start, end));
+    }
+}
@@ -1,75 +1,278 @@
 package Project.DAO;
 
+import Project.DAO.RoomSearchPlan.KeyTerm;
+import Project.DAO.RoomSearchPlan.RangeTerm;
+import Project.DAO.RoomSearchPlan.Term;
 import Project.exception.BadRequestException;
 import Project.exception.InternalServerException;
+import Project.model.DateCodec;
 import Project.model.Filter;
+import Project.model.Hotel;
+import Project.model.Page;
+import Project.model.Reference;
 import Project.model.Room;
+import Project.model.SortKey;
 
-import java.text.SimpleDateFormat;
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.Date;
 import java.util.LinkedList;
+import java.util.List;
+import java.util.function.Function;
+import java.util.function.Predicate;
 
 public class RoomDAO extends DAOTools<Room> {
+    public static final SecondaryIndex<Room, Long> BY_HOTEL =
+            SecondaryIndex.nonUnique("hotel", Room::getHotelId);
+    public static final SecondaryIndex<Room, Integer> BY_GUESTS =
+            SecondaryIndex.bitmap("guests", Room::getNumberOfGuests);
+    public static final SecondaryIndex<Room, Boolean> BY_BREAKFAST =
+            SecondaryIndex.bitmap("breakfast", Room::getBreakfastIncluded);
+    public static final SecondaryIndex<Room, Boolean> BY_PETS =
+            SecondaryIndex.bitmap("pets", Room::getPetsAllowed);
+    public static final SecondaryIndex<Room, String> BY_COUNTRY =
+            SecondaryIndex.bitmap("country", room -> hotelField(room, Hotel::getCountry));
+    public static final SecondaryIndex<Room, String> BY_CITY =
+            SecondaryIndex.bitmap("city", room -> hotelField(room, Hotel::getCity));
+    public static final SecondaryIndex<Room, Double> BY_PRICE =
+            SecondaryIndex.sorted("price", Room::getPrice);
+    public static final SecondaryIndex<Room, Integer> BY_DATE_AVAILABLE_FROM =
+            SecondaryIndex.sorted("dateAvailableFrom", Room::getDateAvailableFromHours);
+
     private static HotelDAO hotelDAO = new HotelDAO();
 
     public RoomDAO() {
-        super("E:/Project/RoomDb.txt");
+        super("RoomDb.txt", ShardStrategy.byKey(StorageConfig.getShardCount(), BY_HOTEL));
+        declareIndex(BY_HOTEL);
+        declareIndex(BY_GUESTS);
+        declareIndex(BY_BREAKFAST);
+        declareIndex(BY_PETS);
+        declareIndex(BY_COUNTRY);
+        declareIndex(BY_CITY);
+        declareIndex(BY_PRICE);
+        declareIndex(BY_DATE_AVAILABLE_FROM);
+    }
+
+    //one page of the rooms that match the filter, in the order of its sort key
+    public Page<Room> findRooms(Filter filter) throws InternalServerException, BadRequestException {
+        RangeTerm<Double> priceTerm = priceTerm(filter);
+        RangeTerm<Integer> dateTerm = dateTerm(filter);
+        Page<Room> page = filter.getSortKey() == SortKey.DATE_AVAILABLE_FROM
+                ? findPage(filter, dateTerm, priceTerm, Integer::valueOf)
+                : findPage(filter, priceTerm, dateTerm, Double::valueOf);
+
+        if (filter.getCursor() == null) checkResultSize(page.getItems());
+        return page;
     }
 
-    public LinkedList<Room> findRooms(Filter filter) throws InternalServerException, BadRequestException {
-        LinkedList<Room> rooms = findRoomsByFilter(filter);
-        checkResultSize(rooms);
-        return rooms;
+    //the plan findRooms makes for the filter: the rooms each criterion matches, the driver and the residual checks
+    public String explain(Filter filter) throws InternalServerException {
+        RangeTerm<Double> priceTerm = priceTerm(filter);
+        RangeTerm<Integer> dateTerm = dateTerm(filter);
+        return (filter.getSortKey() == SortKey.DATE_AVAILABLE_FROM
+                ? plan(filter, dateTerm, priceTerm)
+                : plan(filter, priceTerm, dateTerm)).toString();
     }
 
     @Override
     public Room map(String line) {
         try {
-            String[] fields = line.split(", ");
+            RecordTokenizer fields = new RecordTokenizer(line);
 
             return new Room(
-                    Long.parseLong(fields[0]),
-                    Integer.parseInt(fields[1]),
-                    Double.parseDouble(fields[2]),
-                    Boolean.parseBoolean(fields[3]),
-                    Boolean.parseBoolean(fields[4]),
-                    new SimpleDateFormat("dd.MM.yyyy kk:00").parse(fields[5]),
-                    hotelDAO.findById(Long.parseLong(fields[6])));
+                    fields.nextLong(),
+                    fields.nextInt(),
+                    fields.nextDouble(),
+                    fields.nextBoolean(),
+                    fields.nextBoolean(),
+                    fields.nextHours(),
+                    Reference.lazy(fields.nextLong(), hotelDAO::findById));
         } catch (Exception e) {
             System.err.println("Something went wrong");
         }
         return null;
     }
 
+    @Override
+    public Room map(long id, DataInput in) {
+        try {
+            return new Room(
+                    id,
+                    in.readInt(),
+                    in.readDouble(),
+                    in.readBoolean(),
+                    in.readBoolean(),
+                    DateCodec.fromStored(in.readLong()),
+                    Reference.lazy(in.readLong(), hotelDAO::findById));
+        } catch (Exception e) {
+            System.err.println("Something went wrong");
+        }
+        return null;
+    }
+
+    @Override
+    public void write(Room room, DataOutput out) throws IOException {
+        out.writeInt(room.getNumberOfGuests());
+        out.writeDouble(room.getPrice());
+        out.writeBoolean(room.getBreakfastIncluded());
+        out.writeBoolean(room.getPetsAllowed());
+        out.writeLong(room.getDateAvailableFromHours());
+        out.writeLong(room.getHotelId());
+    }
+
     public void checkHotelRooms(long hotelId) throws InternalServerException, BadRequestException {
-        for (Room room : getObjectsFromDAO()) {
-            if (room.getHotel().getId().equals(hotelId))
-                throw new BadRequestException("checkHotelRooms failed: This hotel has a room that is in use: " +
-                        room.getId());
+        LinkedList<Room> rooms = findBy(BY_HOTEL, hotelId);
+
+        if (!rooms.isEmpty())
+            throw new BadRequestException("checkHotelRooms failed: This hotel has a room that is in use: " +
+                    rooms.getFirst().getId());
+    }
+
+    public void checkHotelsRooms(Collection<Long> hotelIds) throws InternalServerException, BadRequestException {
+        for (Long hotelId : hotelIds) {
+            checkHotelRooms(hotelId);
         }
     }
 
-    private void checkResultSize(LinkedList<Room> rooms) throws BadRequestException {
+    private void checkResultSize(List<Room> rooms) throws BadRequestException {
         if (rooms.size() == 0)
             throw new BadRequestException("checkResultSize failed: there is no room with this filter parameters");
     }
 
-    private LinkedList<Room> findRoomsByFilter(Filter filter) throws InternalServerException {
-        LinkedList<Room> rooms = new LinkedList<>();
-        for (Room room : getObjectsFromDAO()) {
-            if (checkRoomByFilter(room, filter)) rooms.add(room);
+    //the sort index gives the rooms in the order of the page, from the cursor on; the other drivers read every room
+    //they match and keep the first ones behind the cursor. One room more than the page tells whether a next page
+    //exists, the cursor holds the sort key and id of the last room of the page. The matches are the stored rooms,
+    //only the page is copied
+    private <K extends Comparable<K>> Page<Room> findPage(Filter filter, RangeTerm<K> sortTerm, RangeTerm<?> otherTerm,
+                                                          Function<String, K> keyParser)
+            throws InternalServerException, BadRequestException {
+        IndexRange<K> pageRange = filter.getCursor() == null
+                ? sortTerm.range
+                : afterCursor(filter, sortTerm.range, keyParser);
+        int limit = filter.getPageSize() + 1;
+        RoomSearchPlan plan = plan(filter, sortTerm, otherTerm);
+        Predicate<Room> residual = plan.getResidual();
+
+        List<Room> rooms;
+        if (plan.getDriver() == RoomSearchPlan.Driver.SORT_INDEX) {
+            rooms = copiesOf(getEngine().findRange(sortTerm.index, pageRange, residual, limit));
+        } else {
+            List<Room> matches = plan.getDriver() == RoomSearchPlan.Driver.BITMAPS
+                    ? getEngine().findByAll(plan.getKeys())
+                    : plan.getRangeTerm().findAll(this);
+            Predicate<Room> onPage = room -> pageRange.contains(sortTerm.index.keyOf(room), room.getId())
+                    && residual.test(room);
+            rooms = copiesOf(SortedIndexSet.first(matches, sortTerm.index, onPage, limit));
         }
-        return rooms;
+        if (rooms.size() < limit) return new Page<>(rooms, null);
+
+        rooms.remove(rooms.size() - 1);
+        Room last = rooms.get(rooms.size() - 1);
+        return new Page<>(rooms, cursorOf(filter.getSortKey(), sortTerm.index.keyOf(last), last.getId()));
     }
 
-    private boolean checkRoomByFilter(Room room, Filter filter) {
-        return ((filter.getNumberOfGuests() == 0 || filter.getNumberOfGuests().equals(room.getNumberOfGuests())) &&
-                (filter.getPrice() == 0.0 || filter.getPrice().equals(room.getPrice())) &&
-                (filter.getBreakfastIncluded() == null ||
-                        filter.getBreakfastIncluded() == room.getBreakfastIncluded()) &&
-                (filter.getPetsAllowed() == null || filter.getPetsAllowed() == room.getPetsAllowed()) &&
-                (filter.getDateAvailableFrom() == null ||
-                        filter.getDateAvailableFrom().after(room.getDateAvailableFrom())) &&
-                (filter.getCountry() == null || filter.getCountry().equals(room.getHotel().getCountry())) &&
-                (filter.getCity() == null || filter.getCity().equals(room.getHotel().getCity())));
+    //a term for every criterion the filter sets; the hotel keys are not exact, a hotel may have moved since its rooms
+    //were indexed, so they never drive the bitmaps and are always checked on the rooms read against the hotel as it
+    //is stored now
+    private RoomSearchPlan plan(Filter filter, RangeTerm<?> sortTerm, RangeTerm<?> otherTerm)
+            throws InternalServerException {
+        List<Term> terms = new ArrayList<>();
+        Integer guests = filter.getNumberOfGuests();
+        Integer minGuests = filter.getMinGuests();
+        Integer maxGuests = filter.getMaxGuests();
+        Boolean breakfast = filter.getBreakfastIncluded();
+        Boolean pets = filter.getPetsAllowed();
+        String country = filter.getCountry();
+        String city = filter.getCity();
+
+        if (guests != 0)
+            terms.add(new KeyTerm(BY_GUESTS, guests, room -> guests.equals(room.getNumberOfGuests()), true));
+        if (minGuests != null || maxGuests != null) {
+            terms.add(new RangeTerm<>(describe("guests", minGuests, maxGuests), BY_GUESTS,
+                    IndexRange.between(minGuests, maxGuests),
+                    room -> (minGuests == null || room.getNumberOfGuests() >= minGuests) &&
+                            (maxGuests == null || room.getNumberOfGuests() <= maxGuests), true));
+        }
+        if (breakfast != null)
+            terms.add(new KeyTerm(BY_BREAKFAST, breakfast, room -> breakfast == room.getBreakfastIncluded(), true));
+        if (pets != null) terms.add(new KeyTerm(BY_PETS, pets, room -> pets == room.getPetsAllowed(), true));
+        if (country != null) {
+            terms.add(new KeyTerm(BY_COUNTRY, country, room -> country.equals(hotelField(room, Hotel::getCountry)),
+                    false));
+        }
+        if (city != null)
+            terms.add(new KeyTerm(BY_CITY, city, room -> city.equals(hotelField(room, Hotel::getCity)), false));
+        if (sortTerm.isBounded()) terms.add(sortTerm);
+        if (otherTerm.isBounded()) terms.add(otherTerm);
+
+        return RoomSearchPlan.create(this, terms, sortTerm, filter.getPageSize());
+    }
+
+    //an exact price is a range of one key
+    private RangeTerm<Double> priceTerm(Filter filter) {
+        Double price = filter.getPrice() == 0.0 ? null : filter.getPrice();
+        Double minPrice = filter.getMinPrice();
+        Double maxPrice = filter.getMaxPrice();
+        IndexRange<Double> range = price != null
+                ? IndexRange.between(price, price)
+                : IndexRange.between(minPrice, maxPrice);
+        String description = price != null ? "price = " + price : describe("price", minPrice, maxPrice);
+
+        return new RangeTerm<>(description, BY_PRICE, range,
+                room -> (price == null || price.equals(room.getPrice())) &&
+                        (minPrice == null || room.getPrice() >= minPrice) &&
+                        (maxPrice == null || room.getPrice() <= maxPrice),
+                price == null || minPrice == null && maxPrice == null);
+    }
+
+    //rooms available before the date; the index reads the rooms of its own hour too, so the term is not exact
+    private RangeTerm<Integer> dateTerm(Filter filter) {
+        Date date = filter.getDateAvailableFrom();
+        Integer hours = date == null ? null : DateCodec.toHours(date);
+
+        return new RangeTerm<>("dateAvailableFrom before " + (date == null ? "any" : DateCodec.format(hours)),
+                BY_DATE_AVAILABLE_FROM, IndexRange.between(null, hours),
+                room -> date == null || date.getTime() > DateCodec.toMillis(room.getDateAvailableFromHours()), false);
+    }
+
+    private static String describe(String name, Object from, Object to) {
+        return name + (from == null ? "" : " from " + from) + (to == null ? "" : " to " + to);
+    }
+
+    private static String cursorOf(SortKey sortKey, Object key, long id) {
+        String cursor = sortKey + ":" + key + ":" + id;
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static <K extends Comparable<K>> IndexRange<K> afterCursor(Filter filter, IndexRange<K> range,
+                                                                       Function<String, K> keyParser)
+            throws BadRequestException {
+        try {
+            String cursor = new String(Base64.getUrlDecoder().decode(filter.getCursor()), StandardCharsets.UTF_8);
+            String[] fields = cursor.split(":", 3);
+            if (fields.length != 3 || !fields[0].equals(filter.getSortKey().name()))
+                throw new BadRequestException("afterCursor failed: the cursor is not one of this sort key");
+
+            return range.after(keyParser.apply(fields[1]), Long.parseLong(fields[2]));
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException("afterCursor failed: invalid cursor");
+        }
+    }
+
+    //taken from the stored hotel rather than the hotel object the room was built with; a room whose hotel can not be
+    //loaded is left out of the hotel indexes instead of failing the write
+    private static String hotelField(Room room, Function<Hotel, String> field) {
+        if (room.getHotelId() == null) return null;
+
+        try {
+            return field.apply(hotelDAO.findById(room.getHotelId()));
+        } catch (InternalServerException | BadRequestException e) {
+            return null;
+        }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,244 @@
+package Project.DAO;
+
+import Project.exception.InternalServerException;
+import Project.model.Room;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+//the plan of one page of a room search. Every criterion of the filter is a term that knows from the indexes how many
+//rooms match it; the access path that reads the fewest rooms drives the search, and the terms it does not answer
+//exactly are checked on every room it reads, the most selective first. No count goes on further than the cheapest
+//path found before it, so making the plan never costs more than running it
+final class RoomSearchPlan {
+    enum Driver {
+        //walks the index of the sort key, the rooms come in the order of the page
+        SORT_INDEX,
+        //intersects the bitmaps of the exact equality criteria and sorts the rooms that have them all
+        BITMAPS,
+        //reads the range of another sorted index and sorts the rooms in it
+        RANGE_INDEX
+    }
+
+    private final long roomCount;
+    private final List<Term> terms;
+    private final Map<SecondaryIndex<Room, ?>, Object> keys;
+    private final RangeTerm<?> sortTerm;
+    private final RangeTerm<?> rangeTerm;
+    private final Driver driver;
+    private final long cost;
+    private final List<Term> residuals;
+
+    private RoomSearchPlan(long roomCount, List<Term> terms, Map<SecondaryIndex<Room, ?>, Object> keys,
+                           RangeTerm<?> sortTerm, RangeTerm<?> rangeTerm, Driver driver, long cost) {
+        this.roomCount = roomCount;
+        this.terms = terms;
+        this.keys = keys;
+        this.sortTerm = sortTerm;
+        this.rangeTerm = rangeTerm;
+        this.driver = driver;
+        this.cost = cost;
+        this.residuals = new ArrayList<>();
+        for (Term term : terms) {
+            if (!isAnswered(term)) residuals.add(term);
+        }
+    }
+
+    //the sort term reads the whole index when the filter puts no bounds on the sort key
+    static RoomSearchPlan create(RoomDAO dao, List<Term> terms, RangeTerm<?> sortTerm, int pageSize)
+            throws InternalServerException {
+        long roomCount = Math.max(dao.count(), 1);
+
+        //a bitmap count costs the same however many rooms it finds. Only the exact keys drive the bitmaps, a room
+        //indexed under a stale hotel key would be missing from them; the others only narrow the estimates
+        Map<SecondaryIndex<Room, ?>, Object> keys = new HashMap<>();
+        for (Term term : terms) {
+            if (term instanceof KeyTerm && term.exact) keys.put(((KeyTerm) term).index, ((KeyTerm) term).key);
+            if (term.isBitmap()) term.count(dao, Long.MAX_VALUE);
+        }
+        long keyMatches = keys.isEmpty() ? roomCount : dao.countByAll(keys);
+
+        //the walk reads about pageSize / selectivity rooms to fill the page, and never more than its range holds
+        double selectivity = (double) Math.max(keyMatches, 1) / roomCount;
+        for (Term term : terms) {
+            if (term instanceof KeyTerm && !term.exact) selectivity *= (double) Math.max(term.count, 1) / roomCount;
+        }
+        long walkCost = Math.min(roomCount, (long) Math.ceil((pageSize + 1) / selectivity));
+        long bound = keys.isEmpty() ? walkCost : Math.min(keyMatches, walkCost);
+        for (Term term : terms) {
+            if (!term.isBitmap()) term.count(dao, bound);
+            if (term instanceof RangeTerm && term != sortTerm && !term.capped)
+                selectivity *= (double) term.count / roomCount;
+        }
+        walkCost = Math.min(roomCount, (long) Math.ceil((pageSize + 1) / Math.max(selectivity, 1.0 / roomCount)));
+        if (sortTerm.isBounded() && !sortTerm.capped) walkCost = Math.min(walkCost, sortTerm.count);
+
+        Driver driver = Driver.SORT_INDEX;
+        long cost = walkCost;
+        if (!keys.isEmpty() && keyMatches < cost) {
+            driver = Driver.BITMAPS;
+            cost = keyMatches;
+        }
+        RangeTerm<?> rangeTerm = null;
+        for (Term term : terms) {
+            if (term instanceof RangeTerm && term != sortTerm && !term.isBitmap() && !term.capped &&
+                    term.count < cost) {
+                driver = Driver.RANGE_INDEX;
+                cost = term.count;
+                rangeTerm = (RangeTerm<?>) term;
+            }
+        }
+
+        List<Term> ordered = new ArrayList<>(terms);
+        ordered.sort(Comparator.<Term, Boolean>comparing(term -> term.capped).thenComparingLong(term -> term.count));
+        return new RoomSearchPlan(roomCount, ordered, keys, sortTerm, rangeTerm, driver, cost);
+    }
+
+    Driver getDriver() {
+        return driver;
+    }
+
+    Map<SecondaryIndex<Room, ?>, Object> getKeys() {
+        return keys;
+    }
+
+    RangeTerm<?> getRangeTerm() {
+        return rangeTerm;
+    }
+
+    //the residual terms, the most selective first, so a room fails as early as it can
+    Predicate<Room> getResidual() {
+        List<Predicate<Room>> predicates = new ArrayList<>();
+        for (Term term : residuals) {
+            predicates.add(term.predicate);
+        }
+        return room -> {
+            for (Predicate<Room> predicate : predicates) {
+                if (!predicate.test(room)) return false;
+            }
+            return true;
+        };
+    }
+
+    @Override
+    public String toString() {
+        StringBuilder plan = new StringBuilder("rooms: ").append(roomCount);
+        for (Term term : terms) {
+            plan.append("\nterm ").append(term.description).append(": ").append(term.count)
+                    .append(term.capped ? " or more rooms" : " rooms");
+        }
+
+        plan.append("\ndriver: ");
+        if (driver == Driver.SORT_INDEX) {
+            plan.append(sortTerm.index.getName()).append(" index in order");
+        } else if (driver == Driver.BITMAPS) {
+            List<String> names = keys.keySet().stream()
+                    .map(SecondaryIndex::getName)
+                    .sorted()
+                    .collect(Collectors.toList());
+            plan.append("bitmaps ").append(names).append(", sorted by ").append(sortTerm.index.getName());
+        } else {
+            plan.append(rangeTerm.index.getName()).append(" index range, sorted by ")
+                    .append(sortTerm.index.getName());
+        }
+        plan.append(", reads about ").append(cost).append(" rooms");
+
+        plan.append("\nresiduals:");
+        if (residuals.isEmpty()) plan.append(" none");
+        for (Term term : residuals) {
+            plan.append(' ').append(term.description).append(';');
+        }
+        return plan.toString();
+    }
+
+    //a term the driver reads only matching rooms for, by an index that holds exactly the criterion
+    private boolean isAnswered(Term term) {
+        if (!term.exact) return false;
+        if (driver == Driver.SORT_INDEX) return term == sortTerm;
+        if (driver == Driver.BITMAPS) return term instanceof KeyTerm;
+        return term == rangeTerm;
+    }
+
+    //one criterion of the filter; an exact term matches the same rooms as the keys its index reads for it
+    abstract static class Term {
+        final String description;
+        final Predicate<Room> predicate;
+        final boolean exact;
+        long count;
+        boolean capped;
+
+        Term(String description, Predicate<Room> predicate, boolean exact) {
+            this.description = description;
+            this.predicate = predicate;
+            this.exact = exact;
+        }
+
+        abstract boolean isBitmap();
+
+        abstract long countRooms(RoomDAO dao, long limit) throws InternalServerException;
+
+        void count(RoomDAO dao, long limit) throws InternalServerException {
+            count = countRooms(dao, limit);
+            capped = count >= limit;
+        }
+    }
+
+    //the rooms with one key of a bitmap index
+    static final class KeyTerm extends Term {
+        final SecondaryIndex<Room, ?> index;
+        final Object key;
+
+        KeyTerm(SecondaryIndex<Room, ?> index, Object key, Predicate<Room> predicate, boolean exact) {
+            super(index.getName() + " = " + key, predicate, exact);
+            this.index = index;
+            this.key = key;
+        }
+
+        @Override
+        boolean isBitmap() {
+            return true;
+        }
+
+        @Override
+        long countRooms(RoomDAO dao, long limit) throws InternalServerException {
+            return dao.countByAll(Collections.<SecondaryIndex<Room, ?>, Object>singletonMap(index, key));
+        }
+    }
+
+    //the rooms with a key in a range of a sorted or bitmap index; only a sorted one can drive a search
+    static final class RangeTerm<K extends Comparable<K>> extends Term {
+        final SecondaryIndex<Room, K> index;
+        final IndexRange<K> range;
+
+        RangeTerm(String description, SecondaryIndex<Room, K> index, IndexRange<K> range, Predicate<Room> predicate,
+                  boolean exact) {
+            super(description, predicate, exact);
+            this.index = index;
+            this.range = range;
+        }
+
+        boolean isBounded() {
+            return range.getFrom() != null || range.getTo() != null;
+        }
+
+        @Override
+        boolean isBitmap() {
+            return index.isBitmap();
+        }
+
+        @Override
+        long countRooms(RoomDAO dao, long limit) throws InternalServerException {
+            return dao.countRange(index, range, limit);
+        }
+
+        List<Room> findAll(RoomDAO dao) throws InternalServerException {
+            return dao.getEngine().findRange(index, range, room -> true, Integer.MAX_VALUE);
+        }
+    }
+}
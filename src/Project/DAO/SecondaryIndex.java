@@ -0,0 +1,66 @@
+package Project.DAO;
+
+import Project.model.BaseModel;
+
+import java.util.function.Function;
+
+//declared by a DAO as a constant; a unique index rejects a write that gives its key to a second object, a bitmap
+//index keeps one bitmap of rows per key, so the keys of several bitmap indexes are matched by intersecting them, and
+//a sorted index keeps the objects in key order, so a range of keys is read from its first key on
+public final class SecondaryIndex<T extends BaseModel, K> {
+    private enum Kind {
+        UNIQUE,
+        NON_UNIQUE,
+        BITMAP,
+        SORTED
+    }
+
+    private final String name;
+    private final Function<T, K> keyExtractor;
+    private final Kind kind;
+
+    private SecondaryIndex(String name, Function<T, K> keyExtractor, Kind kind) {
+        this.name = name;
+        this.keyExtractor = keyExtractor;
+        this.kind = kind;
+    }
+
+    public static <T extends BaseModel, K> SecondaryIndex<T, K> unique(String name, Function<T, K> keyExtractor) {
+        return new SecondaryIndex<>(name, keyExtractor, Kind.UNIQUE);
+    }
+
+    public static <T extends BaseModel, K> SecondaryIndex<T, K> nonUnique(String name, Function<T, K> keyExtractor) {
+        return new SecondaryIndex<>(name, keyExtractor, Kind.NON_UNIQUE);
+    }
+
+    //for keys with few distinct values, such as flags, counts or places
+    public static <T extends BaseModel, K> SecondaryIndex<T, K> bitmap(String name, Function<T, K> keyExtractor) {
+        return new SecondaryIndex<>(name, keyExtractor, Kind.BITMAP);
+    }
+
+    //objects with equal keys are kept in the order of their ids
+    public static <T extends BaseModel, K extends Comparable<K>> SecondaryIndex<T, K> sorted(
+            String name, Function<T, K> keyExtractor) {
+        return new SecondaryIndex<>(name, keyExtractor, Kind.SORTED);
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    public boolean isUnique() {
+        return kind == Kind.UNIQUE;
+    }
+
+    public boolean isBitmap() {
+        return kind == Kind.BITMAP;
+    }
+
+    public boolean isSorted() {
+        return kind == Kind.SORTED;
+    }
+
+    K keyOf(T object) {
+        return keyExtractor.apply(object);
+    }
+}
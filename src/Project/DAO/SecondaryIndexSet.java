@@ -0,0 +1,155 @@
+package Project.DAO;
+
+import Project.model.BaseModel;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+//the secondary indexes of one DAO storage; changed by its single writer, read without locks except for the bitmap
+//indexes, which are kept apart in a BitmapIndexSet, as are the sorted indexes in a SortedIndexSet
+final class SecondaryIndexSet<T extends BaseModel> {
+    private final Map<SecondaryIndex<T, ?>, HashIndex<T>> indexes = new ConcurrentHashMap<>();
+    private final BitmapIndexSet<T> bitmapIndexes = new BitmapIndexSet<>();
+    private final SortedIndexSet<T> sortedIndexes = new SortedIndexSet<>();
+
+    //returns false if the index was declared before
+    boolean declare(SecondaryIndex<T, ?> index) {
+        if (index.isBitmap()) return bitmapIndexes.declare(index);
+        if (index.isSorted()) return sortedIndexes.declare(index);
+        return indexes.putIfAbsent(index, new HashIndex<>()) == null;
+    }
+
+    void build(SecondaryIndex<T, ?> index, Collection<T> objects) {
+        if (index.isBitmap()) {
+            bitmapIndexes.build(index, objects);
+            return;
+        }
+        if (index.isSorted()) {
+            sortedIndexes.build(index, objects);
+            return;
+        }
+
+        HashIndex<T> hashIndex = indexes.get(index);
+        hashIndex.entries.clear();
+        hashIndex.keys.clear();
+        for (T object : objects) {
+            add(index, hashIndex, object);
+        }
+    }
+
+    void rebuild(Collection<T> objects) {
+        for (SecondaryIndex<T, ?> index : indexes.keySet()) {
+            build(index, objects);
+        }
+        bitmapIndexes.rebuild(objects);
+        sortedIndexes.rebuild(objects);
+    }
+
+    //each index replaces the entry of an indexed id by the key it was stored under, so the old object is not
+    //removed first and is never missing from an index while its new entry goes in
+    void put(T object) {
+        for (Map.Entry<SecondaryIndex<T, ?>, HashIndex<T>> index : indexes.entrySet()) {
+            add(index.getKey(), index.getValue(), object);
+        }
+        bitmapIndexes.put(object);
+        sortedIndexes.put(object);
+    }
+
+    //removes by the keys the object was indexed under; its keys may have changed since
+    void remove(T oldObject) {
+        for (HashIndex<T> hashIndex : indexes.values()) {
+            Object key = hashIndex.keys.remove(oldObject.getId());
+            if (key != null) removeEntry(hashIndex, key, oldObject.getId());
+        }
+        bitmapIndexes.remove(oldObject.getId());
+        sortedIndexes.remove(oldObject.getId());
+    }
+
+    <K> List<T> find(SecondaryIndex<T, K> index, K key) {
+        if (bitmapIndexes.isDeclared(index))
+            return bitmapIndexes.find(Collections.<SecondaryIndex<T, ?>, Object>singletonMap(index, key));
+        if (sortedIndexes.isDeclared(index)) return sortedIndexes.find(index, key);
+
+        HashIndex<T> hashIndex = indexes.get(index);
+        if (hashIndex == null)
+            throw new IllegalArgumentException("find failed: index " + index.getName() + " is not declared");
+
+        Map<Long, T> objects = hashIndex.entries.get(key);
+        return objects == null ? new ArrayList<>() : new ArrayList<>(objects.values());
+    }
+
+    List<T> findAll(Map<SecondaryIndex<T, ?>, Object> keys) {
+        return bitmapIndexes.find(keys);
+    }
+
+    long count(Map<SecondaryIndex<T, ?>, Object> keys) {
+        return bitmapIndexes.count(keys);
+    }
+
+    <K extends Comparable<K>> long countRange(SecondaryIndex<T, K> index, IndexRange<K> range, long limit) {
+        if (bitmapIndexes.isDeclared(index)) return Math.min(bitmapIndexes.countRange(index, range), limit);
+        return sortedIndexes.countRange(index, range, limit);
+    }
+
+    <K extends Comparable<K>> List<T> findRange(SecondaryIndex<T, K> index, IndexRange<K> range, Predicate<T> filter,
+                                                int limit) {
+        return sortedIndexes.findRange(index, range, filter, limit);
+    }
+
+    //checks the puts of one write against the unique indexes and against the keys claimed by the earlier
+    //writes of the same batch, which are not in the indexes yet; returns null if the write may go ahead
+    String findUniqueViolation(Collection<T> puts, Collection<Long> deletedIds,
+                               Map<SecondaryIndex<T, ?>, Map<Object, Long>> claimedKeys) {
+        Map<SecondaryIndex<T, ?>, Map<Object, Long>> newKeys = new HashMap<>();
+
+        for (Map.Entry<SecondaryIndex<T, ?>, HashIndex<T>> entry : indexes.entrySet()) {
+            SecondaryIndex<T, ?> index = entry.getKey();
+            if (!index.isUnique()) continue;
+
+            Map<Object, Long> claimed = claimedKeys.getOrDefault(index, Collections.emptyMap());
+            Map<Object, Long> keys = newKeys.computeIfAbsent(index, key -> new HashMap<>());
+            for (T object : puts) {
+                Object key = index.keyOf(object);
+                if (key == null) continue;
+
+                Long owner = keys.containsKey(key) ? keys.get(key) : claimed.get(key);
+                if (owner == null) {
+                    Map<Long, T> owners = entry.getValue().entries.get(key);
+                    if (owners != null && !owners.isEmpty()) owner = owners.keySet().iterator().next();
+                }
+                if (owner != null && !owner.equals(object.getId()) && !deletedIds.contains(owner))
+                    return "unique index " + index.getName() + " already has key: " + key;
+
+                keys.put(key, object.getId());
+            }
+        }
+
+        for (Map.Entry<SecondaryIndex<T, ?>, Map<Object, Long>> keys : newKeys.entrySet()) {
+            claimedKeys.computeIfAbsent(keys.getKey(), key -> new HashMap<>()).putAll(keys.getValue());
+        }
+        return null;
+    }
+
+    private void add(SecondaryIndex<T, ?> index, HashIndex<T> hashIndex, T object) {
+        Object key = index.keyOf(object);
+        if (key != null)
+            hashIndex.entries.computeIfAbsent(key, key1 -> new ConcurrentHashMap<>()).put(object.getId(), object);
+
+        Object oldKey = key == null ? hashIndex.keys.remove(object.getId()) : hashIndex.keys.put(object.getId(), key);
+        if (oldKey != null && !oldKey.equals(key)) removeEntry(hashIndex, oldKey, object.getId());
+    }
+
+    private void removeEntry(HashIndex<T> hashIndex, Object key, long id) {
+        hashIndex.entries.computeIfPresent(key, (key1, objects) -> {
+            objects.remove(id);
+            return objects.isEmpty() ? null : objects;
+        });
+    }
+
+    //the objects of one index by key, and the key of every indexed id, which only the writer reads
+    private static final class HashIndex<T> {
+        private final Map<Object, Map<Long, T>> entries = new ConcurrentHashMap<>();
+        private final LongHashIndex<Object> keys = new LongHashIndex<>();
+    }
+}
@@ -0,0 +1,58 @@
+package Project.DAO;
+
+import Project.model.BaseModel;
+
+import java.util.Objects;
+
+//splits the objects of a DAO over shardCount files, by id hash or by the key of a partition index
+public final class ShardStrategy<T extends BaseModel> {
+    private final int shardCount;
+    private final SecondaryIndex<T, ?> partitionIndex;
+
+    private ShardStrategy(int shardCount, SecondaryIndex<T, ?> partitionIndex) {
+        if (shardCount < 1) throw new IllegalArgumentException("ShardStrategy failed: shard count: " + shardCount);
+
+        this.shardCount = shardCount;
+        this.partitionIndex = partitionIndex;
+    }
+
+    public static <T extends BaseModel> ShardStrategy<T> byId(int shardCount) {
+        return new ShardStrategy<>(shardCount, null);
+    }
+
+    //integer keys land on shard key mod shardCount, so a key range such as consecutive months is spread in order
+    public static <T extends BaseModel> ShardStrategy<T> byKey(int shardCount, SecondaryIndex<T, ?> partitionIndex) {
+        return new ShardStrategy<>(shardCount, partitionIndex);
+    }
+
+    public int getShardCount() {
+        return shardCount;
+    }
+
+    public SecondaryIndex<T, ?> getPartitionIndex() {
+        return partitionIndex;
+    }
+
+    public boolean isById() {
+        return partitionIndex == null;
+    }
+
+    //RoomDb.txt becomes RoomDb.0.txt, RoomDb.1.txt...
+    public String shardName(String name, int shard) {
+        int dot = name.lastIndexOf('.');
+        if (dot < 0) return name + "." + shard;
+        return name.substring(0, dot) + "." + shard + name.substring(dot);
+    }
+
+    int shardOf(T object) {
+        return isById() ? shardOfId(object.getId()) : shardOfKey(partitionIndex.keyOf(object));
+    }
+
+    int shardOfId(long id) {
+        return Math.floorMod(Long.hashCode(id), shardCount);
+    }
+
+    int shardOfKey(Object key) {
+        return Math.floorMod(Objects.hashCode(key), shardCount);
+    }
+}
@@ -0,0 +1,217 @@
+package Project.DAO;
+
+import Project.exception.InternalServerException;
+import Project.model.BaseModel;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+//routes every object to one shard engine, so a write only touches its own shard file and index;
+//lookups by id hash or by the partition key go to a single shard, everything else is merged over all shards
+public final class ShardedStorageEngine<T extends BaseModel> implements StorageEngine<T> {
+    private final ShardStrategy<T> strategy;
+    private final List<StorageEngine<T>> shards;
+
+    private ShardedStorageEngine(ShardStrategy<T> strategy, List<StorageEngine<T>> shards) {
+        this.strategy = strategy;
+        this.shards = shards;
+    }
+
+    //the shard files are created next to an existing unsharded file, the data of which can be moved into the shards
+    //with DAOFormatConverter.importFrom
+    public static <T extends BaseModel> StorageEngine<T> create(String name, DAOTools<T> dao,
+                                                                ShardStrategy<T> strategy,
+                                                                StorageEngineFactory factory) {
+        List<StorageEngine<T>> shards = new ArrayList<>();
+        for (int shard = 0; shard < strategy.getShardCount(); shard++) {
+            String shardName = strategy.shardName(name, shard);
+
+            createShardFile(name, shardName);
+            shards.add(factory.create(shardName, dao));
+        }
+        return new ShardedStorageEngine<>(strategy, Collections.unmodifiableList(shards));
+    }
+
+    @Override
+    public boolean isResident() {
+        return shards.stream().allMatch(StorageEngine::isResident);
+    }
+
+    @Override
+    public T findById(long id) throws InternalServerException {
+        if (strategy.isById()) return shards.get(strategy.shardOfId(id)).findById(id);
+
+        for (StorageEngine<T> shard : shards) {
+            T object = shard.findById(id);
+            if (object != null) return object;
+        }
+        return null;
+    }
+
+    @Override
+    public List<T> findAll() throws InternalServerException {
+        List<T> objects = new ArrayList<>();
+        for (StorageEngine<T> shard : shards) {
+            objects.addAll(shard.findAll());
+        }
+        return objects;
+    }
+
+    @Override
+    public Stream<T> stream() throws InternalServerException {
+        List<Stream<T>> streams = new ArrayList<>();
+        for (StorageEngine<T> shard : shards) {
+            streams.add(shard.stream());
+        }
+        return streams.stream().flatMap(stream -> stream);
+    }
+
+    //puts go in before the stale copies in other shards are deleted, so a failure in between never loses an object
+    @Override
+    public void write(Collection<T> puts, Collection<Long> deletedIds) throws InternalServerException {
+        List<List<T>> shardPuts = new ArrayList<>();
+        List<List<Long>> shardDeletes = new ArrayList<>();
+        for (int shard = 0; shard < shards.size(); shard++) {
+            shardPuts.add(new ArrayList<>());
+            shardDeletes.add(new ArrayList<>());
+        }
+
+        for (T object : puts) {
+            int target = strategy.shardOf(object);
+            shardPuts.get(target).add(object);
+
+            //the partition key of an updated object may have moved it to another shard
+            if (!strategy.isById()) addOwners(object.getId(), target, shardDeletes);
+        }
+        for (Long id : deletedIds) {
+            if (strategy.isById()) shardDeletes.get(strategy.shardOfId(id)).add(id);
+            else addOwners(id, -1, shardDeletes);
+        }
+
+        for (int shard = 0; shard < shards.size(); shard++) {
+            if (!shardPuts.get(shard).isEmpty()) shards.get(shard).write(shardPuts.get(shard), shardDeletes.get(shard));
+        }
+        for (int shard = 0; shard < shards.size(); shard++) {
+            if (shardPuts.get(shard).isEmpty() && !shardDeletes.get(shard).isEmpty())
+                shards.get(shard).write(Collections.emptyList(), shardDeletes.get(shard));
+        }
+    }
+
+    //a unique key is only checked inside one shard, so it has to decide the shard
+    @Override
+    public void declareIndex(SecondaryIndex<T, ?> index) {
+        if (index.isUnique() && index != strategy.getPartitionIndex())
+            throw new IllegalArgumentException("declareIndex failed: unique index " + index.getName() +
+                    " is not the partition key of a sharded DAO");
+
+        for (StorageEngine<T> shard : shards) {
+            shard.declareIndex(index);
+        }
+    }
+
+    @Override
+    public <K> List<T> findBy(SecondaryIndex<T, K> index, K key) throws InternalServerException {
+        if (index == strategy.getPartitionIndex()) return shards.get(strategy.shardOfKey(key)).findBy(index, key);
+
+        List<T> objects = new ArrayList<>();
+        for (StorageEngine<T> shard : shards) {
+            objects.addAll(shard.findBy(index, key));
+        }
+        return objects;
+    }
+
+    @Override
+    public List<T> findByAll(Map<SecondaryIndex<T, ?>, Object> keys) throws InternalServerException {
+        Object partitionKey = strategy.isById() ? null : keys.get(strategy.getPartitionIndex());
+        if (partitionKey != null) return shards.get(strategy.shardOfKey(partitionKey)).findByAll(keys);
+
+        List<T> objects = new ArrayList<>();
+        for (StorageEngine<T> shard : shards) {
+            objects.addAll(shard.findByAll(keys));
+        }
+        return objects;
+    }
+
+    //each shard reads its own first limit objects, the merge keeps the first limit of them all; an object that moves
+    //between shards may be read from both while it moves, so the merge keeps one copy of each id
+    @Override
+    public <K extends Comparable<K>> List<T> findRange(SecondaryIndex<T, K> index, IndexRange<K> range,
+                                                       Predicate<T> filter, int limit)
+            throws InternalServerException {
+        List<T> objects = new ArrayList<>();
+        for (StorageEngine<T> shard : shards) {
+            objects.addAll(shard.findRange(index, range, filter, limit));
+        }
+        objects.sort(SortedIndexSet.orderOf(index));
+
+        Set<Long> ids = new HashSet<>();
+        List<T> merged = new ArrayList<>(Math.min(limit, objects.size()));
+        for (T object : objects) {
+            if (merged.size() == limit) break;
+            if (ids.add(object.getId())) merged.add(object);
+        }
+        return merged;
+    }
+
+    @Override
+    public long count() throws InternalServerException {
+        long count = 0;
+        for (StorageEngine<T> shard : shards) {
+            count += shard.count();
+        }
+        return count;
+    }
+
+    @Override
+    public long countByAll(Map<SecondaryIndex<T, ?>, Object> keys) throws InternalServerException {
+        Object partitionKey = strategy.isById() ? null : keys.get(strategy.getPartitionIndex());
+        if (partitionKey != null) return shards.get(strategy.shardOfKey(partitionKey)).countByAll(keys);
+
+        long count = 0;
+        for (StorageEngine<T> shard : shards) {
+            count += shard.countByAll(keys);
+        }
+        return count;
+    }
+
+    //stops at the first shard that reaches the limit with the shards before it
+    @Override
+    public <K extends Comparable<K>> long countRange(SecondaryIndex<T, K> index, IndexRange<K> range, long limit)
+            throws InternalServerException {
+        long count = 0;
+        for (int shard = 0; shard < shards.size() && count < limit; shard++) {
+            count += shards.get(shard).countRange(index, range, limit - count);
+        }
+        return count;
+    }
+
+    List<StorageEngine<T>> getShards() {
+        return shards;
+    }
+
+    private void addOwners(long id, int target, List<List<Long>> shardDeletes) throws InternalServerException {
+        for (int shard = 0; shard < shards.size(); shard++) {
+            if (shard != target && shards.get(shard).findById(id) != null) shardDeletes.get(shard).add(id);
+        }
+    }
+
+    private static void createShardFile(String name, String shardName) {
+        File file = new File(StorageConfig.getDataDirectory(), name);
+        File shardFile = new File(StorageConfig.getDataDirectory(), shardName);
+
+        try {
+            if (file.exists() && !shardFile.exists()) shardFile.createNewFile();
+        } catch (IOException e) {
+            System.err.println("createShardFile failed: " + e.getMessage());
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package Project.DAO;
+
+import Project.model.BaseModel;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Predicate;
+
+//the sorted indexes of one DAO storage: each keeps its objects in a skip list ordered by key and id, so a read seeks
+//to the first key of its range in O(log N) and walks on from there; changed by the single writer, read without locks
+final class SortedIndexSet<T extends BaseModel> {
+    private final Map<SecondaryIndex<T, ?>, SortedIndex<T>> indexes = new ConcurrentHashMap<>();
+
+    //returns false if the index was declared before
+    boolean declare(SecondaryIndex<T, ?> index) {
+        return indexes.putIfAbsent(index, new SortedIndex<>()) == null;
+    }
+
+    boolean isDeclared(SecondaryIndex<T, ?> index) {
+        return index.isSorted() && indexes.containsKey(index);
+    }
+
+    void build(SecondaryIndex<T, ?> index, Collection<T> objects) {
+        SortedIndex<T> sortedIndex = indexes.get(index);
+        sortedIndex.entries.clear();
+        sortedIndex.positions.clear();
+        for (T object : objects) {
+            add(index, sortedIndex, object);
+        }
+    }
+
+    void rebuild(Collection<T> objects) {
+        for (SecondaryIndex<T, ?> index : indexes.keySet()) {
+            build(index, objects);
+        }
+    }
+
+    void put(T object) {
+        for (Map.Entry<SecondaryIndex<T, ?>, SortedIndex<T>> index : indexes.entrySet()) {
+            add(index.getKey(), index.getValue(), object);
+        }
+    }
+
+    //removes by the position the object was indexed under; its key may have changed since
+    void remove(long id) {
+        for (SortedIndex<T> sortedIndex : indexes.values()) {
+            Position position = sortedIndex.positions.remove(id);
+            if (position != null) sortedIndex.entries.remove(position);
+        }
+    }
+
+    List<T> find(SecondaryIndex<T, ?> index, Object key) {
+        if (key == null) return new ArrayList<>();
+
+        return new ArrayList<>(getEntries(index)
+                .subMap(new Position(key, Long.MIN_VALUE), true, new Position(key, Long.MAX_VALUE), true)
+                .values());
+    }
+
+    //the first limit objects of the range, in key order, that pass the filter
+    <K extends Comparable<K>> List<T> findRange(SecondaryIndex<T, K> index, IndexRange<K> range, Predicate<T> filter,
+                                                int limit) {
+        List<T> objects = new ArrayList<>(Math.min(limit, 1024));
+        for (T object : entriesOf(index, range).values()) {
+            if (objects.size() == limit) break;
+            if (filter.test(object)) objects.add(object);
+        }
+        return objects;
+    }
+
+    //counts no further than limit, so a count costs at most as much as reading that many objects
+    <K extends Comparable<K>> long countRange(SecondaryIndex<T, K> index, IndexRange<K> range, long limit) {
+        long count = 0;
+        Iterator<Position> positions = entriesOf(index, range).keySet().iterator();
+        while (count < limit && positions.hasNext()) {
+            positions.next();
+            count++;
+        }
+        return count;
+    }
+
+    //the order of the objects in the index, for merging the reads of several storages
+    static <T extends BaseModel, K extends Comparable<K>> Comparator<T> orderOf(SecondaryIndex<T, K> index) {
+        return Comparator.<T, K>comparing(index::keyOf).thenComparing(BaseModel::getId);
+    }
+
+    //the first limit objects in the order of the index that pass the filter, kept in a heap of limit objects instead
+    //of sorting them all
+    static <T extends BaseModel, K extends Comparable<K>> List<T> first(Collection<T> objects,
+                                                                     SecondaryIndex<T, K> index, Predicate<T> filter,
+                                                                     int limit) {
+        Comparator<T> order = orderOf(index);
+        PriorityQueue<T> heap = new PriorityQueue<>(order.reversed());
+        for (T object : objects) {
+            if (!filter.test(object)) continue;
+            if (heap.size() < limit) {
+                heap.add(object);
+            } else if (order.compare(object, heap.peek()) < 0) {
+                heap.poll();
+                heap.add(object);
+            }
+        }
+
+        List<T> first = new ArrayList<>(heap);
+        first.sort(order);
+        return first;
+    }
+
+    private <K extends Comparable<K>> NavigableMap<Position, T> entriesOf(SecondaryIndex<T, K> index,
+                                                                          IndexRange<K> range) {
+        NavigableMap<Position, T> entries = getEntries(index);
+
+        Position lower = range.getFrom() == null ? null : new Position(range.getFrom(), Long.MIN_VALUE);
+        boolean lowerInclusive = true;
+        if (range.hasAfter()) {
+            Position after = new Position(range.getAfterKey(), range.getAfterId());
+            if (lower == null || after.compareTo(lower) >= 0) {
+                lower = after;
+                lowerInclusive = false;
+            }
+        }
+        Position upper = range.getTo() == null ? null : new Position(range.getTo(), Long.MAX_VALUE);
+        if (lower != null && upper != null && lower.compareTo(upper) >= 0) return Collections.emptyNavigableMap();
+
+        if (lower != null) entries = entries.tailMap(lower, lowerInclusive);
+        if (upper != null) entries = entries.headMap(upper, true);
+        return entries;
+    }
+
+    private ConcurrentSkipListMap<Position, T> getEntries(SecondaryIndex<T, ?> index) {
+        SortedIndex<T> sortedIndex = indexes.get(index);
+        if (sortedIndex == null)
+            throw new IllegalArgumentException("find failed: index " + index.getName() +
+                    " is not a declared sorted index");
+        return sortedIndex.entries;
+    }
+
+    //the new entry goes in before the old one goes out, so a range reader never misses an object whose key stays or
+    //grows; one whose key drops behind a running scan can still be missed, as the skip list scan is weakly consistent
+    private void add(SecondaryIndex<T, ?> index, SortedIndex<T> sortedIndex, T object) {
+        Position position = Position.of(index, object);
+        if (position != null) sortedIndex.entries.put(position, object);
+
+        Position oldPosition = position == null
+                ? sortedIndex.positions.remove(object.getId())
+                : sortedIndex.positions.put(object.getId(), position);
+        if (oldPosition != null && (position == null || oldPosition.compareTo(position) != 0))
+            sortedIndex.entries.remove(oldPosition);
+    }
+
+    //the entries of one index and the position of every indexed id, which only the writer reads
+    private static final class SortedIndex<T> {
+        private final ConcurrentSkipListMap<Position, T> entries = new ConcurrentSkipListMap<>();
+        private final LongHashIndex<Position> positions = new LongHashIndex<>();
+    }
+
+    //a key of a sorted index and the id of its object; objects without a key are not indexed
+    private static final class Position implements Comparable<Position> {
+        private final Comparable<Object> key;
+        private final long id;
+
+        @SuppressWarnings("unchecked")
+        Position(Object key, long id) {
+            this.key = (Comparable<Object>) key;
+            this.id = id;
+        }
+
+        static <T extends BaseModel> Position of(SecondaryIndex<T, ?> index, T object) {
+            Object key = index.keyOf(object);
+            return key == null ? null : new Position(key, object.getId());
+        }
+
+        @Override
+        public int compareTo(Position position) {
+            int order = key.compareTo(position.key);
+            return order != 0 ? order : Long.compare(id, position.id);
+        }
+    }
+}
@@ -0,0 +1,72 @@
+package Project.DAO;
+
+//selects the storage engine of all DAOs created afterwards; defaults come from the system properties
+//project.storage.engine (file, memory or the class name of a StorageEngineFactory), project.storage.directory
+//project.storage.shards, the number of shards of every DAO that declares a shard strategy, project.storage.ids,
+//the IdAllocator.Mode of new ids, and project.storage.mapFiles, whether files are read through a memory map. Windows
+//cannot rename over or truncate a mapped file until the map is garbage collected, which would fail compaction,
+//conversion and torn-tail recovery, so files are read into the heap there unless mapping is asked for
+public final class StorageConfig {
+    private static volatile String dataDirectory = System.getProperty("project.storage.directory", "E:/Project");
+    private static volatile StorageEngineFactory engineFactory =
+            factoryFor(System.getProperty("project.storage.engine", "file"));
+    private static volatile int shardCount = Integer.getInteger("project.storage.shards", 1);
+    private static volatile IdAllocator.Mode idMode =
+            IdAllocator.Mode.valueOf(System.getProperty("project.storage.ids", "SEQUENTIAL"));
+    private static volatile boolean mapFiles = Boolean.parseBoolean(System.getProperty("project.storage.mapFiles",
+            String.valueOf(!System.getProperty("os.name", "").startsWith("Windows"))));
+
+    private StorageConfig() {
+    }
+
+    public static String getDataDirectory() {
+        return dataDirectory;
+    }
+
+    public static void setDataDirectory(String dataDirectory) {
+        StorageConfig.dataDirectory = dataDirectory;
+    }
+
+    public static StorageEngineFactory getEngineFactory() {
+        return engineFactory;
+    }
+
+    public static void setEngineFactory(StorageEngineFactory engineFactory) {
+        StorageConfig.engineFactory = engineFactory;
+    }
+
+    public static int getShardCount() {
+        return shardCount;
+    }
+
+    public static void setShardCount(int shardCount) {
+        StorageConfig.shardCount = shardCount;
+    }
+
+    public static IdAllocator.Mode getIdMode() {
+        return idMode;
+    }
+
+    public static void setIdMode(IdAllocator.Mode idMode) {
+        StorageConfig.idMode = idMode;
+    }
+
+    public static boolean isMapFiles() {
+        return mapFiles;
+    }
+
+    public static void setMapFiles(boolean mapFiles) {
+        StorageConfig.mapFiles = mapFiles;
+    }
+
+    public static StorageEngineFactory factoryFor(String engine) {
+        if (engine.equals("file")) return FileStorageEngine::create;
+        if (engine.equals("memory")) return MemoryStorageEngine::create;
+
+        try {
+            return (StorageEngineFactory) Class.forName(engine).getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | ClassCastException e) {
+            throw new IllegalArgumentException("factoryFor failed: unknown storage engine: " + engine);
+        }
+    }
+}
@@ -0,0 +1,48 @@
+package Project.DAO;
+
+import Project.exception.InternalServerException;
+import Project.model.BaseModel;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Predicate;
+import java.util.stream.Stream;
+
+//storage behind DAOTools; an engine returns null for a missing id and applies puts and deletes of one write together
+public interface StorageEngine<T extends BaseModel> {
+
+    T findById(long id) throws InternalServerException;
+
+    List<T> findAll() throws InternalServerException;
+
+    Stream<T> stream() throws InternalServerException;
+
+    void write(Collection<T> puts, Collection<Long> deletedIds) throws InternalServerException;
+
+    void declareIndex(SecondaryIndex<T, ?> index);
+
+    <K> List<T> findBy(SecondaryIndex<T, K> index, K key) throws InternalServerException;
+
+    //the objects that have every key, all of them of bitmap indexes
+    List<T> findByAll(Map<SecondaryIndex<T, ?>, Object> keys) throws InternalServerException;
+
+    //the first limit objects of the range of a sorted index that pass the filter, in the order of the index
+    <K extends Comparable<K>> List<T> findRange(SecondaryIndex<T, K> index, IndexRange<K> range, Predicate<T> filter,
+                                                int limit) throws InternalServerException;
+
+    //the statistics of a query planner, read from the indexes: the number of objects, of objects that have every key
+    //of bitmap indexes, and of objects in the range of a sorted or bitmap index, counted up to limit
+    long count() throws InternalServerException;
+
+    long countByAll(Map<SecondaryIndex<T, ?>, Object> keys) throws InternalServerException;
+
+    <K extends Comparable<K>> long countRange(SecondaryIndex<T, K> index, IndexRange<K> range, long limit)
+            throws InternalServerException;
+
+    //an engine that keeps every object in memory and checks its files on every findById is not fronted by the
+    //entity cache, which could only serve objects older than the files
+    default boolean isResident() {
+        return false;
+    }
+}
@@ -0,0 +1,8 @@
+package Project.DAO;
+
+import Project.model.BaseModel;
+
+public interface StorageEngineFactory {
+
+    <T extends BaseModel> StorageEngine<T> create(String name, DAOTools<T> dao);
+}
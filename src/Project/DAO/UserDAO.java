@@ -5,33 +5,51 @@ import Project.exception.InternalServerException;
 import Project.model.User;
 import Project.model.UserType;
 
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.util.LinkedList;
+
 public class UserDAO extends DAOTools<User> {
+    public static final SecondaryIndex<User, String> BY_USER_NAME =
+            SecondaryIndex.unique("userName", User::getUserName);
 
     public UserDAO() {
-        super("E:/Project/UserDb.txt");
+        super("UserDb.txt");
+        declareIndex(BY_USER_NAME);
     }
 
     @Override
     public User map(String line) {
-        String[] fields = line.split(", ");
+        RecordTokenizer fields = new RecordTokenizer(line);
+
+        return new User(fields.nextLong(), fields.nextString(), fields.nextString(), fields.nextString(),
+                UserType.valueOf(fields.nextString()));
+    }
+
+    @Override
+    public User map(long id, DataInput in) throws IOException {
+        return new User(id, in.readUTF(), in.readUTF(), in.readUTF(), UserType.values()[in.readByte()]);
+    }
 
-        return new User(Long.parseLong(fields[0]), fields[1], fields[2], fields[3], UserType.valueOf(fields[4]));
+    @Override
+    public void write(User user, DataOutput out) throws IOException {
+        out.writeUTF(user.getUserName());
+        out.writeUTF(user.getPassword());
+        out.writeUTF(user.getCountry());
+        out.writeByte(user.getUserType().ordinal());
     }
 
     public User logIn(String userName, String password) throws InternalServerException, BadRequestException {
-        for (User user : getObjectsFromDAO()) {
-            if (user.getUserName().equals(userName)) {
-                return checkPassword(user, password);
-            }
-        }
-        throw new BadRequestException("logIn failed: wrong username or user not registered");
+        LinkedList<User> users = findBy(BY_USER_NAME, userName);
+
+        if (users.isEmpty()) throw new BadRequestException("logIn failed: wrong username or user not registered");
+        return checkPassword(users.getFirst(), password);
     }
 
     public void usernameCheckForUniqueness(String userName) throws InternalServerException, BadRequestException {
-        for (User user1 : getObjectsFromDAO()) {
-            if (user1.getUserName().equals(userName))
-                throw new BadRequestException("usernameCheckForUniqueness failed: username is already taken");
-        }
+        if (!findBy(BY_USER_NAME, userName).isEmpty())
+            throw new BadRequestException("usernameCheckForUniqueness failed: username is already taken");
     }
 
     private User checkPassword(User user, String password) throws BadRequestException {
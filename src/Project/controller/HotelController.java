@@ -26,4 +26,14 @@ public class HotelController {
     public void deleteHotel(long hotelId) throws InternalServerException, NoAccessException, BadRequestException {
         hotelService.deleteHotel(hotelId);
     }
+
+    public LinkedList<Hotel> addHotels(LinkedList<Hotel> hotels)
+            throws InternalServerException, NoAccessException, BadRequestException {
+        return hotelService.addHotels(hotels);
+    }
+
+    public void deleteHotels(LinkedList<Long> hotelIds)
+            throws InternalServerException, NoAccessException, BadRequestException {
+        hotelService.deleteHotels(hotelIds);
+    }
 }
\ No newline at end of file
@@ -4,6 +4,7 @@ import Project.exception.BadRequestException;
 import Project.exception.InternalServerException;
 import Project.exception.NoAccessException;
 import Project.model.Filter;
+import Project.model.Page;
 import Project.model.Room;
 import Project.service.RoomService;
 
@@ -12,10 +13,14 @@ import java.util.LinkedList;
 public class RoomController {
     private static RoomService roomService = new RoomService();
 
-    public LinkedList<Room> findRooms(Filter filter) throws BadRequestException, InternalServerException {
+    public Page<Room> findRooms(Filter filter) throws BadRequestException, InternalServerException {
         return roomService.findRooms(filter);
     }
 
+    public String explain(Filter filter) throws BadRequestException, InternalServerException {
+        return roomService.explain(filter);
+    }
+
     public Room addRoom(Room room) throws NoAccessException, InternalServerException, BadRequestException {
         return roomService.addRoom(room);
     }
@@ -23,4 +28,14 @@ public class RoomController {
     public void deleteRoom(long roomId) throws NoAccessException, InternalServerException, BadRequestException {
         roomService.deleteRoom(roomId);
     }
+
+    public LinkedList<Room> addRooms(LinkedList<Room> rooms)
+            throws NoAccessException, InternalServerException, BadRequestException {
+        return roomService.addRooms(rooms);
+    }
+
+    public void deleteRooms(LinkedList<Long> roomIds)
+            throws NoAccessException, InternalServerException, BadRequestException {
+        roomService.deleteRooms(roomIds);
+    }
 }
\ No newline at end of file
@@ -0,0 +1,121 @@
+package Project.demo;
+
+import Project.DAO.DAOTools;
+import Project.DAO.EntityCache;
+import Project.DAO.HotelDAO;
+import Project.DAO.OrderDAO;
+import Project.DAO.RoomDAO;
+import Project.DAO.UserDAO;
+import Project.exception.BadRequestException;
+import Project.exception.InternalServerException;
+import Project.model.BaseModel;
+import Project.model.Hotel;
+import Project.model.Order;
+import Project.model.Room;
+import Project.model.User;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+
+//stress test: many threads write and read the same DAO files, then the files are checked for lost or broken records.
+//Every thread notes the last text of each record it wrote; the check replays each file anew through stream and
+//compares, so it reads what reached the files rather than the objects held in memory
+public class DemoConcurrency {
+    private static final int THREADS = 16;
+    private static final int OPERATIONS = 100;
+    private static HotelDAO hotelDAO = new HotelDAO();
+    private static RoomDAO roomDAO = new RoomDAO();
+    private static OrderDAO orderDAO = new OrderDAO();
+    private static UserDAO userDAO = new UserDAO();
+    private static final Map<Long, String> writtenHotels = new ConcurrentHashMap<>();
+    private static final Map<Long, String> writtenRooms = new ConcurrentHashMap<>();
+    private static final Map<Long, String> writtenOrders = new ConcurrentHashMap<>();
+    private static final Set<Long> deletedOrderIds = ConcurrentHashMap.newKeySet();
+
+    public static void main(String[] args) throws Exception {
+        User user = userDAO.addObjectToDAO(new User("Stress" + System.nanoTime(), "StressPassword", "Ukraine"));
+
+        ExecutorService executor = Executors.newFixedThreadPool(THREADS);
+        List<Future<List<Order>>> futures = new ArrayList<>();
+        for (int thread = 0; thread < THREADS; thread++) {
+            int number = thread;
+            futures.add(executor.submit(() -> work(number, user)));
+        }
+
+        List<Order> orders = new ArrayList<>();
+        for (Future<List<Order>> future : futures) {
+            orders.addAll(future.get());
+        }
+        executor.shutdown();
+
+        boolean intact = check(user);
+
+        orderDAO.deleteAll(ids(orders));
+        roomDAO.deleteAll(new ArrayList<>(writtenRooms.keySet()));
+        hotelDAO.deleteAll(new ArrayList<>(writtenHotels.keySet()));
+        userDAO.deleteObjectFromDAO(user);
+
+        System.out.println(intact ? "data is intact: " + orders.size() + " orders" : "data is broken");
+        System.out.println("entity cache: " + EntityCache.getInstance());
+    }
+
+    private static List<Order> work(int thread, User user) throws InternalServerException, BadRequestException {
+        List<Order> orders = new ArrayList<>();
+        Date dateFrom = new Date(System.currentTimeMillis() + 24 * 60 * 60 * 1000L);
+        Date dateTo = new Date(dateFrom.getTime() + 24 * 60 * 60 * 1000L);
+
+        for (int i = 0; i < OPERATIONS; i++) {
+            Hotel hotel = hotelDAO.addObjectToDAO(
+                    new Hotel("StressHotel" + thread + "-" + i, "Ukraine", "StressCity", "StressStreet"));
+            Room room = roomDAO.addObjectToDAO(new Room(2, 100.0, true, false, new Date(), hotel));
+            Order order = orderDAO.addObjectToDAO(new Order(user, room, dateFrom, dateTo, 100.0));
+
+            if (hotelDAO.findById(hotel.getId()) == null || roomDAO.findById(room.getId()) == null)
+                throw new IllegalStateException("work failed: record written by this thread is missing");
+
+            if (i % 3 == 0) {
+                room.setDateAvailableFrom(dateTo);
+                roomDAO.updateObjectInDAO(room);
+                orderDAO.deleteObjectFromDAO(order);
+                deletedOrderIds.add(order.getId());
+            } else {
+                orders.add(order);
+                writtenOrders.put(order.getId(), order.toString());
+            }
+            writtenHotels.put(hotel.getId(), hotel.toString());
+            writtenRooms.put(room.getId(), room.toString());
+            if (i % 25 == 0) orderDAO.stream().anyMatch(order1 -> order1.getId().equals(order.getId()));
+        }
+        return orders;
+    }
+
+    private static boolean check(User user) throws InternalServerException {
+        Set<Long> storedOrderIds = orderDAO.stream()
+                .filter(order -> order.getUserId().equals(user.getId()))
+                .map(Order::getId)
+                .collect(Collectors.toSet());
+
+        return storedOrderIds.equals(writtenOrders.keySet()) &&
+                check(userDAO, Collections.singletonMap(user.getId(), user.toString()), Collections.emptySet()) &&
+                check(hotelDAO, writtenHotels, Collections.emptySet()) &&
+                check(roomDAO, writtenRooms, Collections.emptySet()) &&
+                check(orderDAO, writtenOrders, deletedOrderIds);
+    }
+
+    //the stored text of every written or deleted id is the text last written, and deleted ids are gone
+    private static boolean check(DAOTools<? extends BaseModel> dao, Map<Long, String> written, Set<Long> deletedIds)
+            throws InternalServerException {
+        Map<Long, String> stored = dao.stream()
+                .filter(object -> written.containsKey(object.getId()) || deletedIds.contains(object.getId()))
+                .collect(Collectors.toMap(BaseModel::getId, Object::toString));
+        return stored.equals(written);
+    }
+
+    private static List<Long> ids(List<Order> orders) {
+        return orders.stream().map(Order::getId).collect(Collectors.toList());
+    }
+}
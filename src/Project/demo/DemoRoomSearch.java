@@ -0,0 +1,109 @@
+package Project.demo;
+
+import Project.DAO.HotelDAO;
+import Project.DAO.MemoryStorageEngine;
+import Project.DAO.RoomDAO;
+import Project.DAO.StorageConfig;
+import Project.model.Filter;
+import Project.model.Hotel;
+import Project.model.Page;
+import Project.model.Room;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+//benchmark: fills in-memory DAOs with rooms (1M unless given), prints the plan of each room search and times its
+//first page, the mean of SEARCHES searches, against a scan and sort of every room with the same criteria, then pages
+//through a price range. The first rounds include the warm-up of the JIT
+public class DemoRoomSearch {
+    private static final int HOTELS = 2_000;
+    private static final int ROUNDS = 5;
+    private static final int SEARCHES = 200;
+    private static final String[] COUNTRIES = {"Ukraine", "Poland", "Spain", "Italy", "France"};
+
+    public static void main(String[] args) throws Exception {
+        int roomCount = args.length == 0 ? 1_000_000 : Integer.parseInt(args[0]);
+        StorageConfig.setEngineFactory(MemoryStorageEngine::create);
+        HotelDAO hotelDAO = new HotelDAO();
+        RoomDAO roomDAO = new RoomDAO();
+
+        Random random = new Random(42);
+        List<Hotel> hotels = new ArrayList<>();
+        for (int i = 0; i < HOTELS; i++) {
+            String country = COUNTRIES[i % COUNTRIES.length];
+            hotels.add(new Hotel("Hotel" + i, country, country + "City" + i % 40, "Street" + i));
+        }
+        hotelDAO.addAll(hotels);
+
+        List<Room> rooms = new ArrayList<>();
+        for (int i = 0; i < roomCount; i++) {
+            rooms.add(new Room(1 + random.nextInt(6), 50.0 + random.nextInt(200), random.nextBoolean(),
+                    random.nextBoolean(), new Date(0), hotels.get(random.nextInt(HOTELS))));
+        }
+        long start = System.nanoTime();
+        roomDAO.addAll(rooms);
+        System.out.printf("added %d rooms in %d ms%n", roomCount, (System.nanoTime() - start) / 1_000_000);
+
+        Filter city = new Filter(2, 0.0, true, null, null, null, "SpainCity7");
+        Filter country = new Filter(0, 0.0, null, false, null, "Italy", null);
+        Filter flags = new Filter(4, 0.0, true, true, null, null, null);
+        Filter prices = new Filter(0, 0.0, null, null, null, null, null);
+        prices.setPriceRange(120.0, 130.0);
+        for (Filter filter : new Filter[]{city, country, flags, prices}) {
+            System.out.println(roomDAO.explain(filter) + "\n");
+        }
+        for (int round = 0; round < ROUNDS; round++) {
+            measure("city", roomDAO, city, room -> room.getNumberOfGuests() == 2 && room.getBreakfastIncluded() &&
+                    room.getHotel().getCity().equals("SpainCity7"));
+            measure("country", roomDAO, country, room -> !room.getPetsAllowed() &&
+                    room.getHotel().getCountry().equals("Italy"));
+            measure("flags", roomDAO, flags, room -> room.getNumberOfGuests() == 4 && room.getBreakfastIncluded() &&
+                    room.getPetsAllowed());
+            measure("prices", roomDAO, prices, room -> room.getPrice() >= 120.0 && room.getPrice() <= 130.0);
+        }
+
+        prices.setPageSize(100);
+        start = System.nanoTime();
+        int pages = 0;
+        int found = 0;
+        do {
+            Page<Room> page = roomDAO.findRooms(prices);
+            prices.setCursor(page.getNextCursor());
+            pages++;
+            found += page.getItems().size();
+        } while (prices.getCursor() != null);
+        System.out.printf("paged through %d rooms in %d pages, %d us per page%n", found, pages,
+                (System.nanoTime() - start) / 1_000 / pages);
+    }
+
+    private static void measure(String name, RoomDAO roomDAO, Filter filter, Predicate<Room> criteria)
+            throws Exception {
+        long start = System.nanoTime();
+        List<Room> page = null;
+        for (int i = 0; i < SEARCHES; i++) {
+            page = roomDAO.findRooms(filter).getItems();
+        }
+        long indexed = (System.nanoTime() - start) / SEARCHES;
+
+        start = System.nanoTime();
+        List<Room> scanned = roomDAO.stream()
+                .filter(criteria)
+                .sorted(Comparator.comparing(Room::getPrice).thenComparing(Room::getId))
+                .limit(filter.getPageSize())
+                .collect(Collectors.toList());
+        long scan = System.nanoTime() - start;
+
+        if (!ids(page).equals(ids(scanned)))
+            throw new IllegalStateException("measure failed: " + page + " != " + scanned);
+        System.out.printf("%-8s first page, indexes %7d us, scan %7d us%n", name, indexed / 1_000, scan / 1_000);
+    }
+
+    private static List<Long> ids(List<Room> rooms) {
+        return rooms.stream().map(Room::getId).collect(Collectors.toList());
+    }
+}
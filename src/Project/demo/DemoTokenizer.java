@@ -0,0 +1,110 @@
+package Project.demo;
+
+import Project.DAO.RecordTokenizer;
+import Project.model.Hotel;
+import Project.model.Order;
+import Project.model.Room;
+import Project.model.User;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+import java.util.ArrayList;
+import java.util.Date;
+import java.util.List;
+import java.util.Random;
+
+//benchmark: parses the same room and order text records with String.split and with RecordTokenizer,
+//printing time and allocated bytes per record of each
+public class DemoTokenizer {
+    private static final int RECORDS = 200_000;
+    private static final int ROUNDS = 10;
+
+    public static void main(String[] args) {
+        List<String> lines = createLines();
+
+        if (parseWithSplit(lines) != parseWithTokenizer(lines))
+            throw new IllegalStateException("main failed: the parsers disagree");
+
+        for (int round = 0; round < ROUNDS; round++) {
+            measure("split", lines, () -> parseWithSplit(lines));
+            measure("tokenizer", lines, () -> parseWithTokenizer(lines));
+        }
+    }
+
+    private static List<String> createLines() {
+        Random random = new Random(42);
+        Hotel hotel = new Hotel(7L, "Hotel", "Ukraine", "Kyiv", "Street");
+        User user = new User(8L, "User", "Password", "Ukraine", null);
+        List<String> lines = new ArrayList<>();
+
+        for (int i = 0; i < RECORDS; i++) {
+            Date date = new Date(1_500_000_000_000L + random.nextInt(1_000_000) * 3_600_000L);
+            Room room = new Room(random.nextLong() & Long.MAX_VALUE, 1 + random.nextInt(6),
+                    random.nextInt(100_000) / 100.0, random.nextBoolean(), random.nextBoolean(), date, hotel);
+
+            lines.add(i % 2 == 0 ? room.toString() :
+                    new Order(random.nextLong() & Long.MAX_VALUE, user, room, date, date, room.getPrice()).toString());
+        }
+        return lines;
+    }
+
+    private static long parseWithSplit(List<String> lines) {
+        long checksum = 0;
+
+        for (int i = 0; i < lines.size(); i++) {
+            String[] fields = lines.get(i).split(", ");
+            if (i % 2 == 0) {
+                checksum += Long.parseLong(fields[0]) + Integer.parseInt(fields[1]) +
+                        Double.doubleToLongBits(Double.parseDouble(fields[2])) +
+                        (Boolean.parseBoolean(fields[3]) ? 1 : 0) + (Boolean.parseBoolean(fields[4]) ? 2 : 0) +
+                        Integer.parseInt(fields[5]) + Long.parseLong(fields[6]);
+            } else {
+                checksum += Long.parseLong(fields[0]) + Long.parseLong(fields[1]) + Long.parseLong(fields[2]) +
+                        Integer.parseInt(fields[3]) + Integer.parseInt(fields[4]) +
+                        Double.doubleToLongBits(Double.parseDouble(fields[5]));
+            }
+        }
+        return checksum;
+    }
+
+    private static long parseWithTokenizer(List<String> lines) {
+        long checksum = 0;
+
+        for (int i = 0; i < lines.size(); i++) {
+            RecordTokenizer fields = new RecordTokenizer(lines.get(i));
+            if (i % 2 == 0) {
+                checksum += fields.nextLong() + fields.nextInt() + Double.doubleToLongBits(fields.nextDouble()) +
+                        (fields.nextBoolean() ? 1 : 0) + (fields.nextBoolean() ? 2 : 0) +
+                        fields.nextHours() + fields.nextLong();
+            } else {
+                checksum += fields.nextLong() + fields.nextLong() + fields.nextLong() +
+                        fields.nextHours() + fields.nextHours() +
+                        Double.doubleToLongBits(fields.nextDouble());
+            }
+        }
+        return checksum;
+    }
+
+    private static void measure(String name, List<String> lines, Parser parser) {
+        ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        long allocatedBefore = allocatedBytes(threads);
+        long start = System.nanoTime();
+
+        parser.parse();
+
+        long nanos = System.nanoTime() - start;
+        long allocated = allocatedBytes(threads) - allocatedBefore;
+        System.out.printf("%-10s %6d ms, %5d ns/record, %5d bytes/record%n", name, nanos / 1_000_000,
+                nanos / lines.size(), allocated / lines.size());
+    }
+
+    //0 where the JVM does not count the allocations of a thread
+    private static long allocatedBytes(ThreadMXBean threads) {
+        if (!(threads instanceof com.sun.management.ThreadMXBean)) return 0;
+        return ((com.sun.management.ThreadMXBean) threads).getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    private interface Parser {
+        long parse();
+    }
+}
@@ -6,5 +6,8 @@ public abstract class BaseModel {
 
     public abstract void setId(Long id);
 
+    //the DAOs store and hand out copies, so changing a found object does not change the stored one
+    public abstract BaseModel copy();
+
     public abstract String toString();
 }
\ No newline at end of file
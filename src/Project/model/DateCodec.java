@@ -0,0 +1,51 @@
+package Project.model;
+
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.format.DateTimeFormatter;
+import java.util.Date;
+
+//the one codec of the temporal fields of the models: they are kept and persisted as hours since the epoch, NONE for
+//a missing date, and shown as "dd.MM.yyyy kk:00" in the default time zone through one immutable formatter
+public final class DateCodec {
+    public static final int NONE = Integer.MIN_VALUE;
+    public static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("dd.MM.yyyy kk:00");
+
+    private static final long MILLIS_PER_HOUR = 3_600_000L;
+    //hours stay far below it until the year 100000, milliseconds pass it 12 days after the epoch
+    private static final long MILLIS_BOUND = 1_000_000_000L;
+
+    private DateCodec() {
+    }
+
+    public static int toHours(Date date) {
+        return date == null ? NONE : toHours(date.getTime());
+    }
+
+    public static int toHours(long millis) {
+        return (int) Math.floorDiv(millis, MILLIS_PER_HOUR);
+    }
+
+    public static Date toDate(int hours) {
+        return hours == NONE ? null : new Date(toMillis(hours));
+    }
+
+    public static long toMillis(int hours) {
+        return hours * MILLIS_PER_HOUR;
+    }
+
+    public static LocalDateTime toLocalDateTime(int hours) {
+        return LocalDateTime.ofInstant(Instant.ofEpochMilli(toMillis(hours)), ZoneId.systemDefault());
+    }
+
+    public static String format(int hours) {
+        return hours == NONE ? "null" : FORMAT.format(toLocalDateTime(hours));
+    }
+
+    //binary records written before the epoch-hour encoding hold milliseconds in the same field
+    public static int fromStored(long value) {
+        if (value == NONE || Math.abs(value) < MILLIS_BOUND) return (int) value;
+        return toHours(value);
+    }
+}
@@ -3,6 +3,9 @@ package Project.model;
 import java.util.Date;
 
 public class Filter {
+    public static final int DEFAULT_PAGE_SIZE = 20;
+    public static final int MAX_PAGE_SIZE = 1000;
+
     private Integer numberOfGuests;
     private Double price;
     private Boolean breakfastIncluded;
@@ -10,6 +13,13 @@ public class Filter {
     private Date dateAvailableFrom;
     private String country;
     private String city;
+    private Double minPrice;
+    private Double maxPrice;
+    private Integer minGuests;
+    private Integer maxGuests;
+    private SortKey sortKey = SortKey.PRICE;
+    private int pageSize = DEFAULT_PAGE_SIZE;
+    private String cursor;
 
     public Filter(Integer numberOfGuests, Double price, Boolean breakfastIncluded, Boolean petsAllowed,
                   Date dateAvailableFrom, String country, String city) {
@@ -49,4 +59,56 @@ public class Filter {
     public String getCity() {
         return city;
     }
-}
\ No newline at end of file
+
+    public Double getMinPrice() {
+        return minPrice;
+    }
+
+    public Double getMaxPrice() {
+        return maxPrice;
+    }
+
+    public Integer getMinGuests() {
+        return minGuests;
+    }
+
+    public Integer getMaxGuests() {
+        return maxGuests;
+    }
+
+    public SortKey getSortKey() {
+        return sortKey;
+    }
+
+    public int getPageSize() {
+        return pageSize;
+    }
+
+    public String getCursor() {
+        return cursor;
+    }
+
+    //either bound may be null for an open end
+    public void setPriceRange(Double minPrice, Double maxPrice) {
+        this.minPrice = minPrice;
+        this.maxPrice = maxPrice;
+    }
+
+    public void setGuestRange(Integer minGuests, Integer maxGuests) {
+        this.minGuests = minGuests;
+        this.maxGuests = maxGuests;
+    }
+
+    public void setSortKey(SortKey sortKey) {
+        this.sortKey = sortKey;
+    }
+
+    public void setPageSize(int pageSize) {
+        this.pageSize = pageSize;
+    }
+
+    //the next cursor of the previous page, or null for the first page
+    public void setCursor(String cursor) {
+        this.cursor = cursor;
+    }
+}
@@ -66,6 +66,11 @@ public class Hotel extends BaseModel implements Comparable<Hotel> {
         return Objects.hash(name, country, city, street);
     }
 
+    @Override
+    public Hotel copy() {
+        return new Hotel(id, name, country, city, street);
+    }
+
     @Override
     public String toString() {
         return id + ", " +
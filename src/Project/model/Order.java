@@ -1,25 +1,33 @@
 package Project.model;
 
-import java.text.SimpleDateFormat;
+import Project.exception.BadRequestException;
+import Project.exception.InternalServerException;
+
 import java.util.Date;
 
 public class Order extends BaseModel implements Comparable<Order> {
     private Long id;
-    private User user;
-    private Room room;
-    private Date dateFrom;
-    private Date dateTo;
+    private Reference<User> user;
+    private Reference<Room> room;
+    private int dateFrom;
+    private int dateTo;
     private Double moneyPaid;
 
     public Order(User user, Room room, Date dateFrom, Date dateTo, Double moneyPaid) {
-        this.user = user;
-        this.room = room;
-        this.dateFrom = dateFrom;
-        this.dateTo = dateTo;
+        this.user = Reference.to(user);
+        this.room = Reference.to(room);
+        this.dateFrom = DateCodec.toHours(dateFrom);
+        this.dateTo = DateCodec.toHours(dateTo);
         this.moneyPaid = moneyPaid;
     }
 
     public Order(Long id, User user, Room room, Date dateFrom, Date dateTo, Double moneyPaid) {
+        this(id, Reference.to(user), Reference.to(room), DateCodec.toHours(dateFrom), DateCodec.toHours(dateTo),
+                moneyPaid);
+    }
+
+    //the dates in hours since the epoch, see DateCodec
+    public Order(Long id, Reference<User> user, Reference<Room> room, int dateFrom, int dateTo, Double moneyPaid) {
         this.id = id;
         this.user = user;
         this.room = room;
@@ -34,40 +42,71 @@ public class Order extends BaseModel implements Comparable<Order> {
     }
 
     public User getUser() {
-        return user;
+        return user.get();
+    }
+
+    public User loadUser() throws InternalServerException, BadRequestException {
+        return user.load();
+    }
+
+    public Long getUserId() {
+        return user.getId();
     }
 
     public Room getRoom() {
-        return room;
+        return room.get();
+    }
+
+    public Room loadRoom() throws InternalServerException, BadRequestException {
+        return room.load();
+    }
+
+    public Long getRoomId() {
+        return room.getId();
     }
 
     public Date getDateFrom() {
+        return DateCodec.toDate(dateFrom);
+    }
+
+    public int getDateFromHours() {
         return dateFrom;
     }
 
     public Date getDateTo() {
+        return DateCodec.toDate(dateTo);
+    }
+
+    public int getDateToHours() {
         return dateTo;
     }
 
+    public Double getMoneyPaid() {
+        return moneyPaid;
+    }
+
     @Override
     public void setId(Long id) {
         this.id = id;
     }
 
     @Override
-    public String toString() {
-        SimpleDateFormat simpleDateFormat = new SimpleDateFormat("dd.MM.yyyy kk:00");
+    public Order copy() {
+        return new Order(id, user, room, dateFrom, dateTo, moneyPaid);
+    }
 
+    @Override
+    public String toString() {
         return id + ", " +
                 user.getId() + ", " +
                 room.getId() + ", " +
-                simpleDateFormat.format(dateFrom) + ", " +
-                simpleDateFormat.format(dateTo) + ", " +
+                dateFrom + ", " +
+                dateTo + ", " +
                 moneyPaid;
     }
 
     @Override
     public int compareTo(Order order) {
-        return this.dateFrom.before(order.getDateFrom()) ? 1 : -1;
+        return this.dateFrom < order.getDateFromHours() ? 1 : -1;
     }
 }
\ No newline at end of file
@@ -0,0 +1,28 @@
+package Project.model;
+
+import java.util.List;
+
+//one page of a search; the next cursor is given back in the filter to read the page after it, and is null on the
+//last page
+public class Page<T> {
+    private List<T> items;
+    private String nextCursor;
+
+    public Page(List<T> items, String nextCursor) {
+        this.items = items;
+        this.nextCursor = nextCursor;
+    }
+
+    public List<T> getItems() {
+        return items;
+    }
+
+    public String getNextCursor() {
+        return nextCursor;
+    }
+
+    @Override
+    public String toString() {
+        return items + ", " + nextCursor;
+    }
+}
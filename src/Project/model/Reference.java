@@ -0,0 +1,53 @@
+package Project.model;
+
+import Project.exception.BadRequestException;
+import Project.exception.InternalServerException;
+
+//a foreign key of a model: holds the id and loads the referenced object on first access, so reading a record
+//never reads the files it refers to
+public final class Reference<T extends BaseModel> {
+    private final Long id;
+    private final Loader<T> loader;
+    private volatile T object;
+
+    private Reference(Long id, Loader<T> loader, T object) {
+        this.id = id;
+        this.loader = loader;
+        this.object = object;
+    }
+
+    public static <T extends BaseModel> Reference<T> to(T object) {
+        return new Reference<>(object == null ? null : object.getId(), null, object);
+    }
+
+    public static <T extends BaseModel> Reference<T> lazy(long id, Loader<T> loader) {
+        return new Reference<>(id, loader, null);
+    }
+
+    public Long getId() {
+        return object == null ? id : object.getId();
+    }
+
+    //fails as the loader does when the key is dangling; DAO code loads through here, not through get
+    public T load() throws InternalServerException, BadRequestException {
+        T loaded = object;
+        if (loaded != null || loader == null) return loaded;
+
+        loaded = loader.load(id);
+        object = loaded;
+        return loaded;
+    }
+
+    //for the getters of the models, which cannot throw the failures of load
+    public T get() {
+        try {
+            return load();
+        } catch (InternalServerException | BadRequestException e) {
+            throw new IllegalStateException("get failed: " + e.getMessage(), e);
+        }
+    }
+
+    public interface Loader<T extends BaseModel> {
+        T load(long id) throws InternalServerException, BadRequestException;
+    }
+}
@@ -1,6 +1,8 @@
 package Project.model;
 
-import java.text.SimpleDateFormat;
+import Project.exception.BadRequestException;
+import Project.exception.InternalServerException;
+
 import java.util.Date;
 
 public class Room extends BaseModel implements Comparable<Room> {
@@ -9,8 +11,8 @@ public class Room extends BaseModel implements Comparable<Room> {
     private Double price;
     private Boolean breakfastIncluded;
     private Boolean petsAllowed;
-    private Date dateAvailableFrom;
-    private Hotel hotel;
+    private int dateAvailableFrom;
+    private Reference<Hotel> hotel;
 
     public Room(Integer numberOfGuests, Double price, Boolean breakfastIncluded, Boolean petsAllowed,
                 Date dateAvailableFrom, Hotel hotel) {
@@ -18,12 +20,19 @@ public class Room extends BaseModel implements Comparable<Room> {
         this.price = price;
         this.breakfastIncluded = breakfastIncluded;
         this.petsAllowed = petsAllowed;
-        this.dateAvailableFrom = dateAvailableFrom;
-        this.hotel = hotel;
+        this.dateAvailableFrom = DateCodec.toHours(dateAvailableFrom);
+        this.hotel = Reference.to(hotel);
     }
 
     public Room(Long id, Integer numberOfGuests, Double price, Boolean breakfastIncluded, Boolean petsAllowed,
                 Date dateAvailableFrom, Hotel hotel) {
+        this(id, numberOfGuests, price, breakfastIncluded, petsAllowed, DateCodec.toHours(dateAvailableFrom),
+                Reference.to(hotel));
+    }
+
+    //the date in hours since the epoch, see DateCodec
+    public Room(Long id, Integer numberOfGuests, Double price, Boolean breakfastIncluded, Boolean petsAllowed,
+                int dateAvailableFrom, Reference<Hotel> hotel) {
         this.id = id;
         this.numberOfGuests = numberOfGuests;
         this.price = price;
@@ -55,11 +64,23 @@ public class Room extends BaseModel implements Comparable<Room> {
     }
 
     public Date getDateAvailableFrom() {
+        return DateCodec.toDate(dateAvailableFrom);
+    }
+
+    public int getDateAvailableFromHours() {
         return dateAvailableFrom;
     }
 
     public Hotel getHotel() {
-        return hotel;
+        return hotel.get();
+    }
+
+    public Hotel loadHotel() throws InternalServerException, BadRequestException {
+        return hotel.load();
+    }
+
+    public Long getHotelId() {
+        return hotel.getId();
     }
 
     @Override
@@ -68,9 +89,18 @@ public class Room extends BaseModel implements Comparable<Room> {
     }
 
     public void setDateAvailableFrom(Date dateAvailableFrom) {
+        this.dateAvailableFrom = DateCodec.toHours(dateAvailableFrom);
+    }
+
+    public void setDateAvailableFromHours(int dateAvailableFrom) {
         this.dateAvailableFrom = dateAvailableFrom;
     }
 
+    @Override
+    public Room copy() {
+        return new Room(id, numberOfGuests, price, breakfastIncluded, petsAllowed, dateAvailableFrom, hotel);
+    }
+
     @Override
     public String toString() {
         return id + ", " +
@@ -78,12 +108,12 @@ public class Room extends BaseModel implements Comparable<Room> {
                 price + ", " +
                 breakfastIncluded + ", " +
                 petsAllowed + ", " +
-                new SimpleDateFormat("dd.MM.yyyy kk:00").format(dateAvailableFrom) + ", " +
+                dateAvailableFrom + ", " +
                 hotel.getId();
     }
 
     @Override
     public int compareTo(Room room) {
-        return this.dateAvailableFrom.after(room.getDateAvailableFrom()) ? 1 : -1;
+        return this.dateAvailableFrom > room.getDateAvailableFromHours() ? 1 : -1;
     }
 }
\ No newline at end of file
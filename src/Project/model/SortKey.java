@@ -0,0 +1,6 @@
+package Project.model;
+
+public enum SortKey {
+    PRICE,
+    DATE_AVAILABLE_FROM
+}
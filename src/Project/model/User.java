@@ -51,6 +51,11 @@ public class User extends BaseModel implements Comparable<User> {
         this.userType = userType;
     }
 
+    @Override
+    public User copy() {
+        return new User(id, userName, password, country, userType);
+    }
+
     @Override
     public String toString() {
         return id + ", " + userName + ", " + password + ", " + country + ", " + userType;
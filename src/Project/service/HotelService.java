@@ -39,6 +39,29 @@ public class HotelService {
         hotelDAO.deleteObjectFromDAO(hotel);
     }
 
+    public LinkedList<Hotel> addHotels(LinkedList<Hotel> hotels)
+            throws NoAccessException, BadRequestException, InternalServerException {
+        userService.checkAccess();
+        validateHotels(hotels);
+
+        hotelDAO.addAll(hotels);
+        return hotels;
+    }
+
+    public void deleteHotels(LinkedList<Long> hotelIds)
+            throws NoAccessException, BadRequestException, InternalServerException {
+        userService.checkAccess();
+        if (hotelIds == null || hotelIds.isEmpty()) {
+            throw new BadRequestException("deleteHotels failed: impossible to process empty list of hotels");
+        }
+        for (Long hotelId : hotelIds) {
+            hotelDAO.findById(hotelId);
+        }
+        roomDAO.checkHotelsRooms(hotelIds);
+
+        hotelDAO.deleteAll(hotelIds);
+    }
+
     private void validateName(String name) throws BadRequestException {
         if (name == null || name.equals("") || !name.equals(name.trim())) {
             throw new BadRequestException("validateName failed: the field is not filled correctly");
@@ -51,7 +74,22 @@ public class HotelService {
         }
     }
 
+    private void validateHotels(LinkedList<Hotel> hotels) throws BadRequestException, InternalServerException {
+        if (hotels == null || hotels.isEmpty()) {
+            throw new BadRequestException("validateHotels failed: impossible to process empty list of hotels");
+        }
+        for (Hotel hotel : hotels) {
+            validateHotelFields(hotel);
+        }
+        hotelDAO.doTheHotelsExist(hotels);
+    }
+
     private void validateHotel(Hotel hotel) throws BadRequestException, InternalServerException {
+        validateHotelFields(hotel);
+        hotelDAO.doesTheHotelExist(hotel);
+    }
+
+    private void validateHotelFields(Hotel hotel) throws BadRequestException {
         if (hotel == null) {
             throw new BadRequestException("validateHotel failed: impossible to process null hotel");
         }
@@ -71,6 +109,5 @@ public class HotelService {
                 hotel.getCity().contains(", ") || hotel.getStreet().contains(", ")) {
             throw new BadRequestException("validateHotel failed: fields must not have ', '");
         }
-        hotelDAO.doesTheHotelExist(hotel);
     }
 }
\ No newline at end of file
@@ -1,5 +1,6 @@
 package Project.service;
 
+import Project.DAO.DAOSession;
 import Project.DAO.OrderDAO;
 import Project.DAO.RoomDAO;
 import Project.DAO.UserDAO;
@@ -16,36 +17,40 @@ public class OrderService {
     private static UserDAO userDAO = new UserDAO();
     private static UserService userService = new UserService();
 
+    //the session loads the room and the user once and writes the order and the moved room at the end
     public void bookRoom(long roomId, long userId, Date dateFrom, Date dateTo)
             throws InternalServerException, NoAccessException, BadRequestException {
-        validateRoomAndUser(roomId, userId);
-        userService.checkUserForOperation(userId);
-        validateOrder(roomId, dateFrom, dateTo);
+        try (DAOSession session = new DAOSession()) {
+            validateRoomAndUser(session, roomId, userId);
+            userService.checkUserForOperation(userId);
+            validateOrder(session, roomId, dateFrom, dateTo);
 
-        Order order = orderDAO.createOrder(roomId, userId, dateFrom, dateTo);
-        orderDAO.addObjectToDAO(order);
+            session.insert(orderDAO, orderDAO.createOrder(session, roomId, userId, dateFrom, dateTo));
+            session.commit();
+        }
     }
 
     public void cancelReservation(long roomId, long userId)
             throws InternalServerException, NoAccessException, BadRequestException {
-        validateRoomAndUser(roomId, userId);
-        userService.checkUserForOperation(userId);
-        validateCancellation(roomId, userId);
+        try (DAOSession session = new DAOSession()) {
+            validateRoomAndUser(session, roomId, userId);
+            userService.checkUserForOperation(userId);
 
-        Order order = orderDAO.findOrderByRoomAndUser(roomId, userId);
-        orderDAO.deleteObjectFromDAO(order);
-    }
+            Order order = orderDAO.findOrderByRoomAndUser(roomId, userId);
+            validateCancellation(order);
 
-    private void validateCancellation(long roomId, long userId)
-            throws InternalServerException, BadRequestException {
-        Date orderDateFrom = orderDAO.findOrderByRoomAndUser(roomId, userId).getDateFrom();
+            session.delete(orderDAO, order);
+            session.commit();
+        }
+    }
 
-        if (orderDateFrom.before(new Date())) {
+    private void validateCancellation(Order order) throws BadRequestException {
+        if (order.getDateFrom().before(new Date())) {
             throw new BadRequestException("validateCancellation failed: possible cancellation has expired");
         }
     }
 
-    private void validateOrder(long roomId, Date dateFrom, Date dateTo)
+    private void validateOrder(DAOSession session, long roomId, Date dateFrom, Date dateTo)
             throws InternalServerException, BadRequestException {
         if (dateFrom == null || dateTo == null) {
             throw new BadRequestException("validateOrder failed: not all fields are filled correctly");
@@ -53,11 +58,12 @@ public class OrderService {
         if (dateTo.before(dateFrom) || dateTo.equals(dateFrom) || dateFrom.before(new Date())) {
             throw new BadRequestException("validateOrder failed: date filled is incorrect");
         }
-        orderDAO.checkRoomForBusy(roomId, dateFrom, dateTo);
+        orderDAO.checkRoomForBusy(session, roomId, dateFrom, dateTo);
     }
 
-    private void validateRoomAndUser(long roomId, long userId) throws InternalServerException, BadRequestException {
-        roomDAO.findById(roomId);
-        userDAO.findById(userId);
+    private void validateRoomAndUser(DAOSession session, long roomId, long userId)
+            throws InternalServerException, BadRequestException {
+        session.find(roomDAO, roomId);
+        session.find(userDAO, userId);
     }
 }
\ No newline at end of file
@@ -6,6 +6,7 @@ import Project.exception.BadRequestException;
 import Project.exception.InternalServerException;
 import Project.exception.NoAccessException;
 import Project.model.Filter;
+import Project.model.Page;
 import Project.model.Room;
 
 import java.util.LinkedList;
@@ -15,11 +16,16 @@ public class RoomService {
     private static UserService userService = new UserService();
     private static HotelDAO hotelDAO = new HotelDAO();
 
-    public LinkedList<Room> findRooms(Filter filter) throws InternalServerException, BadRequestException {
+    public Page<Room> findRooms(Filter filter) throws InternalServerException, BadRequestException {
         validateFilter(filter);
         return roomDAO.findRooms(filter);
     }
 
+    public String explain(Filter filter) throws InternalServerException, BadRequestException {
+        validateFilter(filter);
+        return roomDAO.explain(filter);
+    }
+
     public Room addRoom(Room room) throws InternalServerException, BadRequestException, NoAccessException {
         userService.checkAccess();
         validateRoom(room);
@@ -32,17 +38,54 @@ public class RoomService {
         roomDAO.deleteObjectFromDAO(room);
     }
 
+    public LinkedList<Room> addRooms(LinkedList<Room> rooms)
+            throws InternalServerException, BadRequestException, NoAccessException {
+        userService.checkAccess();
+        if (rooms == null || rooms.isEmpty()) {
+            throw new BadRequestException("addRooms failed: impossible to process empty list of rooms");
+        }
+        for (Room room : rooms) {
+            validateRoom(room);
+        }
+
+        roomDAO.addAll(rooms);
+        return rooms;
+    }
+
+    public void deleteRooms(LinkedList<Long> roomIds)
+            throws InternalServerException, NoAccessException, BadRequestException {
+        userService.checkAccess();
+        if (roomIds == null || roomIds.isEmpty()) {
+            throw new BadRequestException("deleteRooms failed: impossible to process empty list of rooms");
+        }
+        for (Long roomId : roomIds) {
+            roomDAO.findById(roomId);
+        }
+        roomDAO.deleteAll(roomIds);
+    }
+
     private void validateFilter(Filter filter) throws BadRequestException {
         if (filter == null ||
                 (filter.getNumberOfGuests() == 0 && filter.getPrice() == 0 &&
                         filter.getBreakfastIncluded() == null && filter.getPetsAllowed() == null &&
                         filter.getDateAvailableFrom() == null && filter.getCountry() == null &&
-                        filter.getCity() == null)) {
+                        filter.getCity() == null && filter.getMinPrice() == null && filter.getMaxPrice() == null &&
+                        filter.getMinGuests() == null && filter.getMaxGuests() == null)) {
             throw new BadRequestException("validateFilter failed: you have not selected any options for filtering");
         }
         if (filter.getNumberOfGuests() < 0 && filter.getPrice() < 0) {
             throw new BadRequestException("validateFilter failed: you have not selected correct options for filtering");
         }
+        if ((filter.getMinPrice() != null && filter.getMaxPrice() != null &&
+                filter.getMinPrice() > filter.getMaxPrice()) ||
+                (filter.getMinGuests() != null && filter.getMaxGuests() != null &&
+                        filter.getMinGuests() > filter.getMaxGuests())) {
+            throw new BadRequestException("validateFilter failed: the minimum of a range is above its maximum");
+        }
+        if (filter.getSortKey() == null || filter.getPageSize() <= 0 || filter.getPageSize() > Filter.MAX_PAGE_SIZE) {
+            throw new BadRequestException("validateFilter failed: the page needs a sort key and a size from 1 to " +
+                    Filter.MAX_PAGE_SIZE);
+        }
     }
 
     private void validateRoom(Room room) throws InternalServerException, BadRequestException {
@@ -50,9 +93,9 @@ public class RoomService {
             throw new BadRequestException("validateRoom failed: impossible to process null room");
         }
         if (room.getNumberOfGuests() <= 0 || room.getPrice() <= 0.0 || room.getBreakfastIncluded() == null ||
-                room.getPetsAllowed() == null || room.getDateAvailableFrom() == null || room.getHotel() == null) {
+                room.getPetsAllowed() == null || room.getDateAvailableFrom() == null || room.getHotelId() == null) {
             throw new BadRequestException("validateRoom failed: not all fields are filled correctly");
         }
-        hotelDAO.findById(room.getHotel().getId());
+        hotelDAO.findById(room.getHotelId());
     }
 }
\ No newline at end of file